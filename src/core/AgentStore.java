@@ -0,0 +1,224 @@
+package core;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Off-heap storage for turtle state. Each agent is a fixed 32-byte record
+ * (x, y, age, wealth, metabolism, vision, lifeExpectancy, direction) in
+ * direct memory, split into chunks so the population is bounded by RAM rather
+ * than by the heap or by a single buffer's 2 GB limit. The garbage collector
+ * only ever sees one small buffer object per chunk.
+ * Direct memory is capped by -XX:MaxDirectMemorySize, which defaults to the
+ * maximum heap size, so large stores need that flag raised (e.g.
+ * -XX:MaxDirectMemorySize=64g); the constructor reports when it is too low.
+ * Agents are read and written through a Cursor. The store is owned by its
+ * world; close() frees the chunks at once through the JDK's direct buffer
+ * cleaner (falling back to the garbage collector if the JDK does not offer
+ * it), and every cursor operation fails after that. close() must not run
+ * while another thread is using a cursor.
+ */
+public class AgentStore implements AutoCloseable {
+    static final int X = 0;
+    static final int Y = 4;
+    static final int AGE = 8;
+    static final int WEALTH = 12;
+    static final int METABOLISM = 16;
+    static final int VISION = 20;
+    static final int LIFE_EXPECTANCY = 24;
+    static final int DIRECTION = 28;
+    static final int RECORD_SIZE = 32;
+
+    private static final int CHUNK_SHIFT = 20; // 1M agents (32 MB) per chunk
+    private static final int CHUNK_AGENTS = 1 << CHUNK_SHIFT;
+    private static final int NO_DIRECTION = -1;
+    private static final Direction[] DIRECTIONS = Direction.values();
+    private static final MethodHandle INVOKE_CLEANER = findCleaner(); // null if unavailable
+
+    private final long capacity;
+    private ByteBuffer[] chunks;
+
+    /**
+     * Allocate off-heap records for the given number of agents
+     */
+    public AgentStore(long capacity) {
+        this.capacity = capacity;
+        int chunkCount = (int) ((capacity + CHUNK_AGENTS - 1) >>> CHUNK_SHIFT);
+        this.chunks = new ByteBuffer[chunkCount];
+        for (int i = 0; i < chunkCount; i++) {
+            long agents = Math.min(CHUNK_AGENTS, capacity - ((long) i << CHUNK_SHIFT));
+            try {
+                chunks[i] = ByteBuffer.allocateDirect((int) agents * RECORD_SIZE).order(ByteOrder.nativeOrder());
+            } catch (OutOfMemoryError e) {
+                free(chunks);
+                chunks = null;
+                throw new IllegalStateException("Cannot allocate " + capacity * RECORD_SIZE / (1 << 20)
+                                                + " MB of direct memory for " + capacity + " agents; raise "
+                                                + "-XX:MaxDirectMemorySize (defaults to the heap size)", e);
+            }
+        }
+    }
+
+    public long size() {
+        return capacity;
+    }
+
+    /**
+     * A cursor positioned before the first agent
+     */
+    public Cursor cursor() {
+        checkOpen();
+        return new Cursor();
+    }
+
+    /**
+     * Free the store's direct memory. Every cursor, including those already
+     * positioned, fails from now on.
+     */
+    @Override
+    public void close() {
+        ByteBuffer[] released = chunks;
+        chunks = null;
+        if (released != null) {
+            free(released);
+        }
+    }
+
+    public boolean isOpen() {
+        return chunks != null;
+    }
+
+    private void checkOpen() {
+        if (chunks == null) {
+            throw closed();
+        }
+    }
+
+    private static IllegalStateException closed() {
+        return new IllegalStateException("Agent store has been closed");
+    }
+
+    /**
+     * Return the chunks' memory now rather than when they are collected
+     */
+    private static void free(ByteBuffer[] buffers) {
+        if (INVOKE_CLEANER == null) {
+            return;
+        }
+        for (ByteBuffer buffer : buffers) {
+            if (buffer == null) {
+                continue;
+            }
+            try {
+                INVOKE_CLEANER.invokeExact(buffer);
+            } catch (Throwable e) {
+                System.err.println("Could not free agent store chunk: " + e);
+            }
+        }
+    }
+
+    /**
+     * sun.misc.Unsafe.invokeCleaner bound to the Unsafe instance, looked up
+     * reflectively since java.lang.foreign is still a preview API in Java 21
+     */
+    private static MethodHandle findCleaner() {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field instance = unsafeClass.getDeclaredField("theUnsafe");
+            instance.setAccessible(true);
+            return MethodHandles.lookup()
+                .findVirtual(unsafeClass, "invokeCleaner", MethodType.methodType(void.class, ByteBuffer.class))
+                .bindTo(instance.get(null));
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            System.err.println("Agent store memory will be freed by the garbage collector: " + e);
+            return null;
+        }
+    }
+
+    /**
+     * Iterates over and edits agent records in place
+     */
+    public class Cursor {
+        private long index = -1;
+        private ByteBuffer chunk;
+        private int offset;
+
+        /**
+         * Advance to the next agent
+         * @return false once every agent has been visited
+         */
+        public boolean next() {
+            if (index + 1 >= capacity) {
+                return false;
+            }
+            moveTo(index + 1);
+            return true;
+        }
+
+        /**
+         * Position the cursor on an agent by index
+         */
+        public void moveTo(long agent) {
+            ByteBuffer[] current = chunks;
+            if (current == null) {
+                throw closed();
+            }
+            index = agent;
+            chunk = current[(int) (agent >>> CHUNK_SHIFT)];
+            offset = (int) (agent & (CHUNK_AGENTS - 1)) * RECORD_SIZE;
+        }
+
+        /**
+         * Return to before the first agent
+         */
+        public void reset() {
+            index = -1;
+        }
+
+        public long index() {
+            return index;
+        }
+
+        /**
+         * The current agent's chunk, checked against the store being closed
+         */
+        private ByteBuffer chunk() {
+            if (chunks == null) {
+                throw closed();
+            }
+            return chunk;
+        }
+
+        public int x() { return chunk().getInt(offset + X); }
+        public int y() { return chunk().getInt(offset + Y); }
+        public int age() { return chunk().getInt(offset + AGE); }
+        public int wealth() { return chunk().getInt(offset + WEALTH); }
+        public int metabolism() { return chunk().getInt(offset + METABOLISM); }
+        public int vision() { return chunk().getInt(offset + VISION); }
+        public int lifeExpectancy() { return chunk().getInt(offset + LIFE_EXPECTANCY); }
+
+        public void setX(int value) { chunk().putInt(offset + X, value); }
+        public void setY(int value) { chunk().putInt(offset + Y, value); }
+        public void setAge(int value) { chunk().putInt(offset + AGE, value); }
+        public void setWealth(int value) { chunk().putInt(offset + WEALTH, value); }
+        public void setMetabolism(int value) { chunk().putInt(offset + METABOLISM, value); }
+        public void setVision(int value) { chunk().putInt(offset + VISION, value); }
+        public void setLifeExpectancy(int value) { chunk().putInt(offset + LIFE_EXPECTANCY, value); }
+
+        /**
+         * Direction chosen in the decide phase, or null before the first decision
+         */
+        public Direction direction() {
+            int ordinal = chunk().getInt(offset + DIRECTION);
+            return ordinal == NO_DIRECTION ? null : DIRECTIONS[ordinal];
+        }
+
+        public void setDirection(Direction direction) {
+            chunk().putInt(offset + DIRECTION, direction == null ? NO_DIRECTION : direction.ordinal());
+        }
+    }
+}
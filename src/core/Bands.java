@@ -0,0 +1,67 @@
+package core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Splits an index range into one contiguous band per thread, for phases
+ * whose elements are independent (terrain columns, turtles harvesting)
+ */
+final class Bands {
+
+    /**
+     * Work on the indices [from, to)
+     */
+    interface Task {
+        void run(int from, int to);
+    }
+
+    private Bands() {}
+
+    /**
+     * Daemon worker threads for run(), or null to run bands on the caller
+     */
+    static ExecutorService pool(int threads, String name) {
+        if (threads <= 1) {
+            return null;
+        }
+        return Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Split [0, count) into one band per thread and wait for all of them
+     */
+    static void run(ExecutorService pool, int threads, int count, Task task) {
+        if (pool == null) {
+            task.run(0, count);
+            return;
+        }
+        List<Future<?>> futures = new ArrayList<>(threads);
+        for (int i = 0; i < threads; i++) {
+            int from = (int) ((long) count * i / threads);
+            int to = (int) ((long) count * (i + 1) / threads);
+            futures.add(pool.submit(() -> task.run(from, to)));
+        }
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for " + threads + " bands", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Band failed", e.getCause());
+        }
+    }
+}
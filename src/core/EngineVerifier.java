@@ -0,0 +1,110 @@
+package core;
+
+/**
+ * Steps a reference engine and a candidate engine in lock-step and reports
+ * the first tick at which their states differ, down to the agent field or
+ * patch. Both worlds must be built with the same parameters and initialised
+ * with the same seed; the reference is normally the sequential World.step().
+ */
+public class EngineVerifier {
+
+    /**
+     * Outcome of a verification run
+     */
+    public static class Report {
+        private final int ticksCompared;
+        private final long rollingHash;
+        private final String divergence; // null when the engines agree
+
+        Report(int ticksCompared, long rollingHash, String divergence) {
+            this.ticksCompared = ticksCompared;
+            this.rollingHash = rollingHash;
+            this.divergence = divergence;
+        }
+
+        public boolean isIdentical() {
+            return divergence == null;
+        }
+
+        /**
+         * Ticks stepped on both engines, including the diverging one
+         */
+        public int getTicksCompared() {
+            return ticksCompared;
+        }
+
+        /**
+         * Rolling hash of the reference trajectory up to the last agreeing tick
+         */
+        public long getRollingHash() {
+            return rollingHash;
+        }
+
+        /**
+         * Where the engines first differ, or null
+         */
+        public String getDivergence() {
+            return divergence;
+        }
+
+        @Override
+        public String toString() {
+            return divergence == null
+                ? String.format("identical for %d ticks (rolling hash %016x)", ticksCompared, rollingHash)
+                : "diverged: " + divergence;
+        }
+    }
+
+    /**
+     * Compare the initial state and then every tick for the given number of ticks
+     */
+    public static Report verify(World reference, World candidate, int ticks) {
+        long rollingHash = StateHash.start();
+        for (int tick = 0; tick <= ticks; tick++) {
+            if (tick > 0) {
+                reference.step();
+                candidate.step();
+            }
+            long referenceHash = reference.stateHash();
+            if (referenceHash != candidate.stateHash()) {
+                return new Report(tick, rollingHash, "tick " + tick + ", " + locate(reference, candidate));
+            }
+            rollingHash = StateHash.roll(rollingHash, referenceHash);
+        }
+        return new Report(ticks, rollingHash, null);
+    }
+
+    /**
+     * Find the first agent field or patch that differs
+     */
+    private static String locate(World reference, World candidate) {
+        if (reference.getPopulation() != candidate.getPopulation()) {
+            return "population " + reference.getPopulation() + " vs " + candidate.getPopulation();
+        }
+        for (int i = 0; i < reference.getPopulation(); i++) {
+            int[] expected = reference.getAgentState(i);
+            int[] actual = candidate.getAgentState(i);
+            for (int field = 0; field < expected.length; field++) {
+                if (expected[field] != actual[field]) {
+                    return "agent " + i + " " + World.AGENT_FIELDS[field] + ": " 
+                           + expected[field] + " vs " + actual[field];
+                }
+            }
+        }
+        for (int x = 0; x < reference.getWidth(); x++) {
+            for (int y = 0; y < reference.getHeight(); y++) {
+                Patch expected = reference.getPatch(x, y);
+                Patch actual = candidate.getPatch(x, y);
+                if (expected.getGrainHere() != actual.getGrainHere()) {
+                    return "patch (" + x + "," + y + ") grain: " 
+                           + expected.getGrainHere() + " vs " + actual.getGrainHere();
+                }
+                if (expected.getSpreadWealth() != actual.getSpreadWealth()) {
+                    return "patch (" + x + "," + y + ") spread wealth: " 
+                           + expected.getSpreadWealth() + " vs " + actual.getSpreadWealth();
+                }
+            }
+        }
+        return "state hash only";
+    }
+}
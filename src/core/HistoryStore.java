@@ -0,0 +1,346 @@
+package core;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * History of a run for time-travel queries: a keyframe (a fork of the world)
+ * every K ticks and a compact delta for every tick, so any recorded tick is
+ * rebuilt from the keyframe before it plus at most K - 1 deltas instead of
+ * by re-simulating from the start.
+ * A delta holds the agents whose fields changed (index gap, field mask and
+ * zigzag differences) and the runs of consecutive patches whose grain or
+ * spread wealth changed, all as varints. It covers exactly what stateHash()
+ * covers: the fields of World.AGENT_FIELDS and every patch's grain and spread
+ * wealth. Only candidate patches are compared: those left below their max
+ * grain or holding spread wealth at the last tick, where growth and pickup
+ * happen, and those the world reports through patchChanged during harvest
+ * and spreading, so a delta costs the population plus the changed patches
+ * rather than the whole grid. Attached by World.recordHistory(K); needs a
+ * constant population.
+ */
+public class HistoryStore {
+    private static final int FIELDS = World.AGENT_FIELDS.length;
+
+    private final World world;
+    private final int keyframeInterval;
+    private final int firstTick;
+    private final List<World> keyframes = new ArrayList<>(); // keyframes.get(k): tick firstTick + k * K
+    private final List<byte[]> deltas = new ArrayList<>();   // deltas.get(i): tick firstTick + i + 1
+    private long deltaBytes;
+
+    // State at the last recorded tick, diffed against the next one
+    private final int[] agents;  // FIELDS values per turtle
+    private final int[] grain;   // per patch, index x * height + y
+    private final int[] spreadWealth;
+
+    // Patches to compare at the next record, each listed once
+    private final boolean[] candidate;
+    private int[] candidates = new int[1024];
+    private int candidateCount;
+
+    HistoryStore(World world, int keyframeInterval) {
+        if (keyframeInterval < 1) {
+            throw new IllegalArgumentException("Keyframe interval must be at least 1, got " + keyframeInterval);
+        }
+        this.world = world;
+        this.keyframeInterval = keyframeInterval;
+        this.firstTick = world.ticks;
+        this.agents = new int[world.turtles.size() * FIELDS];
+        this.grain = new int[world.width * world.height];
+        this.spreadWealth = new int[world.width * world.height];
+        this.candidate = new boolean[world.width * world.height];
+        keyframes.add(world.fork());
+        for (int i = 0; i < world.turtles.size(); i++) {
+            readAgent(world.turtles.get(i), agents, i * FIELDS);
+        }
+        for (int x = 0; x < world.width; x++) {
+            for (int y = 0; y < world.height; y++) {
+                Patch patch = world.getPatch(x, y);
+                grain[x * world.height + y] = patch.getGrainHere();
+                spreadWealth[x * world.height + y] = patch.getSpreadWealth();
+                if (patch.getGrainHere() < patch.getMaxGrain() || patch.getSpreadWealth() != 0) {
+                    patchChanged(x * world.height + y);
+                }
+            }
+        }
+    }
+
+    /**
+     * Compare a patch, by index x * height + y, at the next record
+     */
+    void patchChanged(int index) {
+        if (candidate[index]) {
+            return;
+        }
+        candidate[index] = true;
+        if (candidateCount == candidates.length) {
+            candidates = Arrays.copyOf(candidates, candidateCount * 2);
+        }
+        candidates[candidateCount++] = index;
+    }
+
+    /**
+     * Record the tick the world has just completed
+     */
+    void record() {
+        if (world.ticks != getLastTick() + 1) {
+            throw new IllegalStateException("History expected tick " + (getLastTick() + 1) + ", got " + world.ticks);
+        }
+        if (world.turtles.size() * FIELDS != agents.length) {
+            throw new IllegalStateException("History needs a constant population");
+        }
+        byte[] delta = encodeDelta();
+        deltas.add(delta);
+        deltaBytes += delta.length;
+        if ((world.ticks - firstTick) % keyframeInterval == 0) {
+            keyframes.add(world.fork());
+        }
+    }
+
+    /**
+     * Diff the world against the last recorded state, which becomes the
+     * world's current state. Candidate patches are compared in index order;
+     * those still below their max grain or holding spread wealth stay
+     * candidates for the next tick.
+     */
+    private byte[] encodeDelta() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int[] current = new int[FIELDS];
+
+        // Agents: count, then per changed agent its index gap, field mask and differences
+        ByteArrayOutputStream changes = new ByteArrayOutputStream();
+        int changed = 0, lastIndex = -1;
+        for (int i = 0; i < world.turtles.size(); i++) {
+            readAgent(world.turtles.get(i), current, 0);
+            int mask = 0;
+            for (int field = 0; field < FIELDS; field++) {
+                if (current[field] != agents[i * FIELDS + field]) {
+                    mask |= 1 << field;
+                }
+            }
+            if (mask == 0) {
+                continue;
+            }
+            writeVarint(changes, i - lastIndex - 1);
+            writeVarint(changes, mask);
+            for (int field = 0; field < FIELDS; field++) {
+                if ((mask & (1 << field)) != 0) {
+                    writeVarint(changes, zigzag(current[field] - agents[i * FIELDS + field]));
+                    agents[i * FIELDS + field] = current[field];
+                }
+            }
+            lastIndex = i;
+            changed++;
+        }
+        writeVarint(out, changed);
+        out.writeBytes(changes.toByteArray());
+
+        // Patches: runs of consecutive changed patches, each as gap, length and differences
+        changes.reset();
+        int runs = 0, runStart = -1, runEnd = -1, lastEnd = 0;
+        int height = world.height;
+        ByteArrayOutputStream run = new ByteArrayOutputStream();
+        Arrays.sort(candidates, 0, candidateCount);
+        int kept = 0;
+        for (int i = 0; i <= candidateCount; i++) {
+            int index = i < candidateCount ? candidates[i] : grain.length;
+            boolean differs = false;
+            int newGrain = 0, newSpread = 0;
+            if (index < grain.length) {
+                Patch patch = world.getPatch(index / height, index % height);
+                newGrain = patch.getGrainHere();
+                newSpread = patch.getSpreadWealth();
+                differs = newGrain != grain[index] || newSpread != spreadWealth[index];
+                if (newGrain < patch.getMaxGrain() || newSpread != 0) {
+                    candidates[kept++] = index;
+                } else {
+                    candidate[index] = false;
+                }
+            }
+            // A run ends at an unchanged candidate or at a gap in the candidates
+            if (runStart >= 0 && (!differs || index != runEnd)) {
+                writeVarint(changes, runStart - lastEnd);
+                writeVarint(changes, runEnd - runStart);
+                changes.writeBytes(run.toByteArray());
+                run.reset();
+                lastEnd = runEnd;
+                runStart = -1;
+                runs++;
+            }
+            if (differs) {
+                if (runStart < 0) {
+                    runStart = index;
+                }
+                runEnd = index + 1;
+                writeVarint(run, zigzag(newGrain - grain[index]));
+                writeVarint(run, zigzag(newSpread - spreadWealth[index]));
+                grain[index] = newGrain;
+                spreadWealth[index] = newSpread;
+            }
+        }
+        candidateCount = kept;
+        writeVarint(out, runs);
+        out.writeBytes(changes.toByteArray());
+        return out.toByteArray();
+    }
+
+    /**
+     * The world as it was at a recorded tick, rebuilt from the keyframe
+     * before it and at most K - 1 deltas. Agent fields, patches and the tick
+     * are exact; random generators and state outside the delta (headings,
+     * model-specific turtle counters) are the keyframe's, so stepping it does
+     * not continue the original run. Use resume() for that.
+     */
+    public World reconstruct(int tick) {
+        int keyframe = keyframeBefore(tick);
+        World state = keyframes.get(keyframe).fork();
+        for (int t = firstTick + keyframe * keyframeInterval + 1; t <= tick; t++) {
+            applyDelta(state, deltas.get(t - firstTick - 1));
+        }
+        state.ticks = tick;
+        state.rebuildIndexes();
+        return state;
+    }
+
+    /**
+     * A world in exactly the state the run had at a recorded tick, including
+     * its random generators, by re-simulating at most K - 1 ticks from the
+     * keyframe before it. Stepping it continues the original run.
+     */
+    public World resume(int tick) {
+        World state = keyframes.get(keyframeBefore(tick)).fork();
+        while (state.ticks < tick) {
+            state.step();
+        }
+        return state;
+    }
+
+    private int keyframeBefore(int tick) {
+        if (tick < firstTick || tick > getLastTick()) {
+            throw new IllegalArgumentException("Tick " + tick + " is outside the recorded ticks "
+                                               + firstTick + ".." + getLastTick());
+        }
+        return (tick - firstTick) / keyframeInterval;
+    }
+
+    private static void applyDelta(World state, byte[] delta) {
+        Reader in = new Reader(delta);
+        int[] fields = new int[FIELDS];
+        int index = -1;
+        for (int changed = (int) in.varint(); changed > 0; changed--) {
+            index += (int) in.varint() + 1;
+            Turtle turtle = state.turtles.get(index);
+            readAgent(turtle, fields, 0);
+            int mask = (int) in.varint();
+            for (int field = 0; field < FIELDS; field++) {
+                if ((mask & (1 << field)) != 0) {
+                    fields[field] += in.zigzag();
+                }
+            }
+            turtle.x = fields[0];
+            turtle.y = fields[1];
+            turtle.age = fields[2];
+            turtle.wealth = fields[3];
+            turtle.metabolism = fields[4];
+            turtle.vision = fields[5];
+            turtle.lifeExpectancy = fields[6];
+        }
+
+        int height = state.height;
+        int patchIndex = 0;
+        for (int runs = (int) in.varint(); runs > 0; runs--) {
+            patchIndex += (int) in.varint();
+            int end = patchIndex + (int) in.varint();
+            for (; patchIndex < end; patchIndex++) {
+                int x = patchIndex / height, y = patchIndex % height;
+                Patch patch = state.getPatch(x, y);
+                patch.setGrainHere(patch.getGrainHere() + in.zigzag());
+                int spreadWealth = patch.getSpreadWealth() + in.zigzag();
+                if (spreadWealth != patch.getSpreadWealth()) {
+                    patch = state.writablePatch(x, y);
+                    patch.harvestSpreadWealth();
+                    patch.addSpreadWealth(spreadWealth);
+                }
+            }
+        }
+    }
+
+    /**
+     * An agent's fields in the order of World.AGENT_FIELDS
+     */
+    private static void readAgent(Turtle turtle, int[] into, int offset) {
+        into[offset] = turtle.x;
+        into[offset + 1] = turtle.y;
+        into[offset + 2] = turtle.age;
+        into[offset + 3] = turtle.wealth;
+        into[offset + 4] = turtle.metabolism;
+        into[offset + 5] = turtle.vision;
+        into[offset + 6] = turtle.lifeExpectancy;
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long zigzag(int value) {
+        return ((long) value << 1) ^ (value >> 31);
+    }
+
+    /**
+     * Reads the varints of one delta in order
+     */
+    private static final class Reader {
+        private final byte[] data;
+        private int position;
+
+        Reader(byte[] data) {
+            this.data = data;
+        }
+
+        long varint() {
+            long value = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = data[position++];
+                value |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+        }
+
+        int zigzag() {
+            long value = varint();
+            return (int) ((value >>> 1) ^ -(value & 1));
+        }
+    }
+
+    public int getFirstTick() {
+        return firstTick;
+    }
+
+    public int getLastTick() {
+        return firstTick + deltas.size();
+    }
+
+    public int getKeyframeInterval() {
+        return keyframeInterval;
+    }
+
+    public int getKeyframeCount() {
+        return keyframes.size();
+    }
+
+    /**
+     * Total size of the encoded deltas
+     */
+    public long getDeltaBytes() {
+        return deltaBytes;
+    }
+}
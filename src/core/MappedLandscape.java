@@ -0,0 +1,256 @@
+package core;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.function.IntBinaryOperator;
+
+/**
+ * Grain and max-grain planes of a landscape in memory-mapped files, for
+ * worlds too large for a Patch per cell. Each plane stores one byte per
+ * patch (grain never exceeds Terrain.MAX_GRAIN) in 256x256 tiles of 64 KB,
+ * laid out tile after tile, so a neighbourhood of patches shares a few pages
+ * and the operating system's page cache keeps only the regions turtles
+ * actually visit resident. Files are mapped in 1 GB segments to stay within
+ * a buffer's 2 GB limit, and are sparse until written.
+ * The files are deleted by close(); the landscape must not be used after it.
+ */
+public final class MappedLandscape implements AutoCloseable {
+    private static final int TILE_SHIFT = 8; // 256 x 256 patches per tile
+    private static final int TILE_MASK = (1 << TILE_SHIFT) - 1;
+    private static final int SEGMENT_SHIFT = 30; // 1 GB per mapped segment
+    private static final int SEGMENT_MASK = (1 << SEGMENT_SHIFT) - 1;
+    private static final double DIFFUSION_RATE = 0.25;
+
+    private final int width, height;
+    private final int tilesX, tilesY;
+    private Plane grain;
+    private Plane maxGrain;
+
+    private MappedLandscape(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.tilesX = (width + TILE_MASK) >>> TILE_SHIFT;
+        this.tilesY = (height + TILE_MASK) >>> TILE_SHIFT;
+    }
+
+    /**
+     * Generate a landscape in the given directory following NetLogo's
+     * setup-patches logic, drawing from the world's generator exactly as
+     * World does, so it equals Terrain.generate for the same seed and leaves
+     * the generator in the same state. Every patch starts with its max grain.
+     */
+    public static MappedLandscape generate(Path directory, int width, int height, int percentBestLand,
+                                           Random random) throws IOException {
+        return generate(directory, width, height, percentBestLand, random, 1);
+    }
+
+    /**
+     * Generate the same landscape as generate(directory, width, height,
+     * percentBestLand, random), diffusing on the given number of threads
+     */
+    public static MappedLandscape generate(Path directory, int width, int height, int percentBestLand,
+                                           Random random, int threads) throws IOException {
+        MappedLandscape landscape = new MappedLandscape(width, height);
+        Plane[] planes = landscape.createPlanes(directory);
+        try (ExecutorService pool = Bands.pool(threads, "terrain")) {
+            // Give some patches the highest grain amount - these are the "best land"
+            for (int x = 0; x < width; x++) {
+                for (int y = 0; y < height; y++) {
+                    if (random.nextDouble() * 100.0 <= percentBestLand) {
+                        landscape.markBestLand(planes, x, y);
+                    }
+                }
+            }
+            landscape.diffuseAll(planes, pool, threads);
+        }
+        return landscape;
+    }
+
+    /**
+     * Generate the landscape of Terrain.generate with counterBased set: best
+     * land is drawn per patch from (seed, x, y), so the whole generation runs
+     * on the given number of threads, with the same result for any count
+     */
+    public static MappedLandscape generateCounterBased(Path directory, int width, int height,
+                                                       int percentBestLand, long seed,
+                                                       int threads) throws IOException {
+        MappedLandscape landscape = new MappedLandscape(width, height);
+        Plane[] planes = landscape.createPlanes(directory);
+        try (ExecutorService pool = Bands.pool(threads, "terrain")) {
+            Bands.run(pool, threads, width, (from, to) -> {
+                for (int x = from; x < to; x++) {
+                    for (int y = 0; y < height; y++) {
+                        if (Terrain.patchDraw(seed, x, y) * 100.0 <= percentBestLand) {
+                            landscape.markBestLand(planes, x, y);
+                        }
+                    }
+                }
+            });
+            landscape.diffuseAll(planes, pool, threads);
+        }
+        return landscape;
+    }
+
+    /**
+     * Best land, grain and diffusion scratch planes
+     */
+    private Plane[] createPlanes(Path directory) throws IOException {
+        long bytes = (long) tilesX * tilesY << (2 * TILE_SHIFT);
+        return new Plane[]{new Plane(directory.resolve("maxgrain.bin"), bytes),
+                           new Plane(directory.resolve("grain.bin"), bytes),
+                           new Plane(directory.resolve("diffusion.bin"), bytes)};
+    }
+
+    private void markBestLand(Plane[] planes, int x, int y) {
+        long offset = offset(x, y);
+        planes[0].put(offset, Terrain.MAX_GRAIN);
+        planes[1].put(offset, Terrain.MAX_GRAIN);
+    }
+
+    /**
+     * 5 rounds of resetting best land then diffusing, then 10 plain
+     * diffusions, leaving the result in both the grain and max-grain planes
+     */
+    private void diffuseAll(Plane[] planes, ExecutorService pool, int threads) {
+        Plane bestLand = planes[0], current = planes[1], next = planes[2];
+        for (int round = 0; round < 15; round++) {
+            Plane source = current;
+            boolean resetBestLand = round < 5;
+            diffuse((x, y) -> {
+                long offset = offset(x, y);
+                int best = resetBestLand ? bestLand.get(offset) : 0;
+                return best != 0 ? best : source.get(offset);
+            }, next, pool, threads);
+            current = next;
+            next = source;
+        }
+
+        // Grain amounts are whole after every diffusion, so they are the final max-grain
+        bestLand.copyFrom(current);
+        next.delete();
+        maxGrain = bestLand;
+        grain = current;
+    }
+
+    /**
+     * One diffusion pass into the target plane, tile by tile so that reads and
+     * writes stay within a few mapped pages at a time, with each thread taking
+     * a band of tile columns
+     */
+    private void diffuse(IntBinaryOperator source, Plane target, ExecutorService pool, int threads) {
+        Bands.run(pool, threads, tilesX, (fromTile, toTile) -> {
+            for (int tileX = fromTile; tileX < toTile; tileX++) {
+                diffuseTileColumn(source, target, tileX);
+            }
+        });
+    }
+
+    private void diffuseTileColumn(IntBinaryOperator source, Plane target, int tileX) {
+        int endX = Math.min(width, (tileX + 1) << TILE_SHIFT);
+        for (int tileY = 0; tileY < tilesY; tileY++) {
+            int endY = Math.min(height, (tileY + 1) << TILE_SHIFT);
+            for (int x = tileX << TILE_SHIFT; x < endX; x++) {
+                for (int y = tileY << TILE_SHIFT; y < endY; y++) {
+                    target.put(offset(x, y), Terrain.diffusedGrain(source, x, y, width, height, DIFFUSION_RATE));
+                }
+            }
+        }
+    }
+
+    /**
+     * Byte offset of a patch in either plane: its tile, then its place within
+     * the tile
+     */
+    private long offset(int x, int y) {
+        long tile = (long) (x >>> TILE_SHIFT) * tilesY + (y >>> TILE_SHIFT);
+        return tile << (2 * TILE_SHIFT) | (x & TILE_MASK) << TILE_SHIFT | (y & TILE_MASK);
+    }
+
+    public int getGrain(int x, int y) {
+        return grain.get(offset(x, y));
+    }
+
+    /**
+     * Set the grain of a patch, between 0 and Terrain.MAX_GRAIN
+     */
+    public void setGrain(int x, int y, int amount) {
+        grain.put(offset(x, y), amount);
+    }
+
+    public int getMaxGrain(int x, int y) {
+        return maxGrain.get(offset(x, y));
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Delete the plane files. Their mappings stay valid until collected, but
+     * the landscape must not be read any more.
+     */
+    @Override
+    public void close() {
+        if (grain != null) {
+            grain.delete();
+            maxGrain.delete();
+            grain = null;
+            maxGrain = null;
+        }
+    }
+
+    /**
+     * One byte per patch in a file, mapped segment by segment
+     */
+    private static final class Plane {
+        private final Path file;
+        private final MappedByteBuffer[] segments;
+
+        Plane(Path file, long bytes) throws IOException {
+            this.file = file;
+            int count = (int) ((bytes + SEGMENT_MASK) >>> SEGMENT_SHIFT);
+            this.segments = new MappedByteBuffer[count];
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW,
+                                                        StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                for (int i = 0; i < count; i++) {
+                    long start = (long) i << SEGMENT_SHIFT;
+                    segments[i] = channel.map(FileChannel.MapMode.READ_WRITE, start,
+                                              Math.min(1L << SEGMENT_SHIFT, bytes - start));
+                }
+            }
+        }
+
+        int get(long offset) {
+            return segments[(int) (offset >>> SEGMENT_SHIFT)].get((int) (offset & SEGMENT_MASK));
+        }
+
+        void put(long offset, int value) {
+            segments[(int) (offset >>> SEGMENT_SHIFT)].put((int) (offset & SEGMENT_MASK), (byte) value);
+        }
+
+        void copyFrom(Plane other) {
+            for (int i = 0; i < segments.length; i++) {
+                segments[i].duplicate().put(other.segments[i].duplicate());
+            }
+        }
+
+        void delete() {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot delete landscape file " + file, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,416 @@
+package core;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * World whose landscape lives out of core in a MappedLandscape instead of a
+ * Patch per cell, for maps of billions of patches (e.g. 100,000 x 100,000)
+ * with turtles in a few regions. Turtles and every phase behave exactly as
+ * in World, so results equal a World with the same seed.
+ * Only patches turtles have emptied are regrown, and turtles per patch are
+ * counted in a hash table, so a tick touches the pages of the visited
+ * regions only. Turtles read grain ahead straight from the landscape;
+ * getPatch and getPatchAhead return read-only views for other callers.
+ * The landscape's share of stateHash() is kept up to date as grain changes
+ * instead of being recomputed over the whole map.
+ * Runs sequentially with the baseline turtles and without spread wealth,
+ * spatial sorting or forking. The landscape files are deleted by close().
+ */
+public class MappedWorld extends World {
+    private Path directory;
+    private boolean ownsDirectory;
+    private MappedLandscape landscape;
+    private final PatchCounts occupants = new PatchCounts();
+    private long landscapeHash; // Sum of the patch hashes, updated by setGrain
+
+    // Patches below their max grain, the only ones growGrain() has to visit
+    private int[] depletedX = new int[1024];
+    private int[] depletedY = new int[1024];
+    private int depletedCount;
+
+    public MappedWorld(int width, int height, int maxPeople, int maxVision,
+                       int maxMetabolism, int minLifeExpectancy, int maxLifeExpectancy,
+                       int percentBestLand, int grainGrowthInterval, int numGrainGrown) {
+        super(width, height, maxPeople, maxVision, maxMetabolism, minLifeExpectancy,
+              maxLifeExpectancy, percentBestLand, grainGrowthInterval, numGrainGrown);
+    }
+
+    /**
+     * Directory for the landscape files; by default a temporary directory that
+     * close() removes. Must be set before initialize().
+     */
+    public void setLandscapeDirectory(Path directory) {
+        this.directory = directory;
+        this.ownsDirectory = false;
+    }
+
+    /**
+     * Generate the mapped landscape, every patch starting at its max grain
+     */
+    @Override
+    protected void setupPatches(int seed) {
+        closeLandscape();
+        try {
+            if (directory == null) {
+                directory = Files.createTempDirectory("landscape");
+                ownsDirectory = true;
+            }
+            if (counterBasedTerrain) {
+                landscape = MappedLandscape.generateCounterBased(directory, width, height, percentBestLand,
+                                                                 seed, terrainThreads);
+            } else {
+                landscape = MappedLandscape.generate(directory, width, height, percentBestLand,
+                                                     random, terrainThreads);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot map landscape in " + directory, e);
+        }
+        depletedCount = 0;
+        landscapeHash = 0;
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                landscapeHash += StateHash.patch(patchIndex(x, y), landscape.getGrain(x, y), 0);
+            }
+        }
+    }
+
+    /**
+     * Harvest grain following NetLogo's harvest logic
+     */
+    @Override
+    protected void harvest() {
+        for (Turtle turtle : processingOrder) {
+            int turtlesOnPatch = occupants.get(patchIndex(turtle.x, turtle.y));
+            turtle.wealth += landscape.getGrain(turtle.x, turtle.y) / turtlesOnPatch;
+        }
+        for (Turtle turtle : processingOrder) {
+            int grain = landscape.getGrain(turtle.x, turtle.y);
+            if (grain == 0) {
+                continue;
+            }
+            if (grain == landscape.getMaxGrain(turtle.x, turtle.y)) {
+                addDepleted(turtle.x, turtle.y);
+            }
+            setGrain(turtle.x, turtle.y, 0);
+        }
+    }
+
+    /**
+     * Set a patch's grain, keeping the landscape hash up to date
+     */
+    private void setGrain(int x, int y, int grain) {
+        long index = patchIndex(x, y);
+        landscapeHash += StateHash.patch(index, grain, 0) - StateHash.patch(index, landscape.getGrain(x, y), 0);
+        landscape.setGrain(x, y, grain);
+    }
+
+    private void addDepleted(int x, int y) {
+        if (depletedCount == depletedX.length) {
+            depletedX = Arrays.copyOf(depletedX, depletedCount * 2);
+            depletedY = Arrays.copyOf(depletedY, depletedCount * 2);
+        }
+        depletedX[depletedCount] = x;
+        depletedY[depletedCount] = y;
+        depletedCount++;
+    }
+
+    /**
+     * Grow grain following NetLogo's grow-grain logic. Full patches would not
+     * change, so only the depleted ones are visited.
+     */
+    @Override
+    protected void growGrain() {
+        int i = 0;
+        while (i < depletedCount) {
+            int x = depletedX[i], y = depletedY[i];
+            int maxGrain = landscape.getMaxGrain(x, y);
+            int grain = Math.min(landscape.getGrain(x, y) + numGrainGrown, maxGrain);
+            setGrain(x, y, grain);
+            if (grain == maxGrain) {
+                depletedCount--;
+                depletedX[i] = depletedX[depletedCount];
+                depletedY[i] = depletedY[depletedCount];
+            } else {
+                i++;
+            }
+        }
+    }
+
+    @Override
+    public Patch getPatchAhead(int x, int y, Direction direction, int distance) {
+        int newX = (x + direction.getDx() * distance + width) % width;
+        int newY = (y + direction.getDy() * distance + height) % height;
+        return new MappedPatch(newX, newY);
+    }
+
+    @Override
+    public int getGrainAhead(int x, int y, Direction direction, int distance) {
+        return landscape.getGrain((x + direction.getDx() * distance + width) % width,
+                                  (y + direction.getDy() * distance + height) % height);
+    }
+
+    @Override
+    public Patch getPatch(int x, int y) {
+        return new MappedPatch(x, y);
+    }
+
+    @Override
+    protected void rebuildOccupancy() {
+        occupants.clear();
+        for (Turtle turtle : turtles) {
+            occupants.add(patchIndex(turtle.x, turtle.y), 1);
+        }
+    }
+
+    @Override
+    public void moveOccupant(int fromX, int fromY, int toX, int toY) {
+        occupants.add(patchIndex(fromX, fromY), -1);
+        occupants.add(patchIndex(toX, toY), 1);
+    }
+
+    @Override
+    public int getOccupancy(int x, int y) {
+        return occupants.get(patchIndex(x, y));
+    }
+
+    private long patchIndex(int x, int y) {
+        return (long) x * height + y;
+    }
+
+    @Override
+    protected long hashLandscape() {
+        return landscapeHash;
+    }
+
+    /**
+     * Patches below their max grain, waiting to regrow
+     */
+    public int getDepletedPatchCount() {
+        return depletedCount;
+    }
+
+    public MappedLandscape getLandscape() {
+        return landscape;
+    }
+
+    @Override
+    public void setTerrain(Terrain terrain) {
+        throw new UnsupportedOperationException("Mapped worlds generate their own landscape");
+    }
+
+    @Override
+    public void addSpreadWealth(int x, int y, int wealth) {
+        throw new UnsupportedOperationException("Mapped landscapes carry no spread wealth");
+    }
+
+    @Override
+    public void setSpatialSortInterval(int interval) {
+        throw new UnsupportedOperationException("Spatial sorting needs a heap landscape");
+    }
+
+    @Override
+    public void setHarvestThreads(int threads) {
+        throw new UnsupportedOperationException("Parallel harvest needs a heap landscape");
+    }
+
+    @Override
+    public void enableTiledStepping(int tileCount, TiledStepper.Orientation orientation) {
+        throw new UnsupportedOperationException("Tiled stepping needs a heap landscape");
+    }
+
+    @Override
+    public <T extends World> T forkAs(Class<T> model) {
+        throw new UnsupportedOperationException("Forking needs a heap landscape");
+    }
+
+    @Override
+    protected void copyStateFrom(World source) {
+        throw new UnsupportedOperationException("Forking needs a heap landscape");
+    }
+
+    /**
+     * Stop the world's workers and delete the landscape files, and their
+     * directory if the world created it
+     */
+    @Override
+    public void close() {
+        super.close();
+        closeLandscape();
+        if (ownsDirectory) {
+            try {
+                Files.deleteIfExists(directory);
+            } catch (IOException e) {
+                System.err.println("Could not delete landscape directory " + directory + ": " + e.getMessage());
+            }
+            directory = null;
+            ownsDirectory = false;
+        }
+    }
+
+    private void closeLandscape() {
+        if (landscape != null) {
+            landscape.close();
+            landscape = null;
+        }
+    }
+
+    /**
+     * Read-only view of one mapped patch; the landscape only changes through
+     * the world's own phases
+     */
+    private final class MappedPatch extends Patch {
+        private final int x, y;
+
+        MappedPatch(int x, int y) {
+            super(0);
+            this.x = x;
+            this.y = y;
+        }
+
+        @Override
+        public int getGrainHere() {
+            return landscape.getGrain(x, y);
+        }
+
+        @Override
+        public int getMaxGrain() {
+            return landscape.getMaxGrain(x, y);
+        }
+
+        @Override
+        public int getSpreadWealth() {
+            return 0;
+        }
+
+        @Override
+        public Patch copy() {
+            Patch patch = new Patch(getMaxGrain());
+            patch.setGrainHere(getGrainHere());
+            return patch;
+        }
+
+        @Override
+        public void growGrain(int growthRate) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setGrainHere(int grainHere) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setMaxGrain(int maxGrain) {
+            throw readOnly();
+        }
+
+        @Override
+        public void addSpreadWealth(int wealth) {
+            throw readOnly();
+        }
+
+        @Override
+        public int harvestSpreadWealth() {
+            throw readOnly();
+        }
+
+        private UnsupportedOperationException readOnly() {
+            return new UnsupportedOperationException("Mapped patches are read-only");
+        }
+    }
+
+    /**
+     * Turtles per patch for the occupied patches only: an open-addressing
+     * table from patch index to count, entries removed when they reach zero
+     */
+    private static final class PatchCounts {
+        private static final long EMPTY = -1;
+
+        private long[] keys = emptyKeys(1024);
+        private int[] counts = new int[1024];
+        private int size;
+
+        private static long[] emptyKeys(int capacity) {
+            long[] keys = new long[capacity];
+            Arrays.fill(keys, EMPTY);
+            return keys;
+        }
+
+        private int slot(long key) {
+            return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & (keys.length - 1);
+        }
+
+        int get(long key) {
+            for (int i = slot(key); keys[i] != EMPTY; i = (i + 1) & (keys.length - 1)) {
+                if (keys[i] == key) {
+                    return counts[i];
+                }
+            }
+            return 0;
+        }
+
+        void add(long key, int delta) {
+            int i = slot(key);
+            while (keys[i] != EMPTY && keys[i] != key) {
+                i = (i + 1) & (keys.length - 1);
+            }
+            if (keys[i] == EMPTY) {
+                keys[i] = key;
+                size++;
+            }
+            counts[i] += delta;
+            if (counts[i] == 0) {
+                remove(i);
+            } else if (size * 2 > keys.length) {
+                resize();
+            }
+        }
+
+        /**
+         * Empty a slot, shifting back later entries of the probe run so that
+         * lookups never stop early
+         */
+        private void remove(int hole) {
+            size--;
+            int mask = keys.length - 1;
+            for (int i = (hole + 1) & mask; keys[i] != EMPTY; i = (i + 1) & mask) {
+                int home = slot(keys[i]);
+                // Movable unless its home lies cyclically in (hole, i]
+                if (((i - home) & mask) >= ((i - hole) & mask)) {
+                    keys[hole] = keys[i];
+                    counts[hole] = counts[i];
+                    hole = i;
+                }
+            }
+            keys[hole] = EMPTY;
+            counts[hole] = 0;
+        }
+
+        private void resize() {
+            long[] oldKeys = keys;
+            int[] oldCounts = counts;
+            keys = emptyKeys(oldKeys.length * 2);
+            counts = new int[oldKeys.length * 2];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != EMPTY) {
+                    int slot = slot(oldKeys[i]);
+                    while (keys[slot] != EMPTY) {
+                        slot = (slot + 1) & (keys.length - 1);
+                    }
+                    keys[slot] = oldKeys[i];
+                    counts[slot] = oldCounts[i];
+                }
+            }
+        }
+
+        void clear() {
+            Arrays.fill(keys, EMPTY);
+            Arrays.fill(counts, 0);
+            size = 0;
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package core;
+
+import utils.PopulationStats;
+import utils.WealthSketch;
+
+/**
+ * World whose turtles live off-heap in an AgentStore instead of as Turtle
+ * objects, for populations in the hundreds of millions. The phases follow
+ * World.step() exactly but walk the store with a cursor.
+ * getTurtles() is always empty; use getPopulationStats() or agents().
+ * The store is released by close(), after which the world cannot step.
+ * Run with -XX:MaxDirectMemorySize above 32 bytes per agent, since direct
+ * memory is otherwise capped at the heap size.
+ */
+public class OffHeapWorld extends World {
+    private AgentStore agents;
+
+    public OffHeapWorld(int width, int height, int maxPeople, int maxVision,
+                        int maxMetabolism, int minLifeExpectancy, int maxLifeExpectancy,
+                        int percentBestLand, int grainGrowthInterval, int numGrainGrown) {
+        super(width, height, maxPeople, maxVision, maxMetabolism, minLifeExpectancy,
+              maxLifeExpectancy, percentBestLand, grainGrowthInterval, numGrainGrown);
+    }
+
+    /**
+     * Setup turtles following NetLogo's setup-turtles logic, writing them 
+     * straight into off-heap records
+     */
+    @Override
+    protected void setupTurtles() {
+        if (agents != null) {
+            agents.close();
+        }
+        agents = new AgentStore(maxPeople);
+
+        AgentStore.Cursor agent = agents.cursor();
+        while (agent.next()) {
+            int metabolism = 1 + random.nextInt(maxMetabolism);
+            int vision = 1 + random.nextInt(maxVision);
+            int lifeExpectancy = minLifeExpectancy + 
+                               random.nextInt(maxLifeExpectancy - minLifeExpectancy + 1);
+            agent.setMetabolism(metabolism);
+            agent.setVision(vision);
+            agent.setLifeExpectancy(lifeExpectancy);
+            agent.setX(random.nextInt(width));
+            agent.setY(random.nextInt(height));
+            agent.setWealth(metabolism + random.nextInt(50));
+            agent.setAge(random.nextInt(lifeExpectancy));
+            agent.setDirection(null);
+        }
+    }
+
+    /**
+     * Each agent turns towards the direction with the most grain ahead
+     */
+    @Override
+    protected void decideDirections() {
+        AgentStore.Cursor agent = agents.cursor();
+        while (agent.next()) {
+            int x = agent.x(), y = agent.y(), vision = agent.vision();
+            Direction bestDirection = Direction.NORTH;
+            int bestAmount = grainAhead(x, y, Direction.NORTH, vision);
+            for (Direction dir : Direction.values()) {
+                int grainInDirection = grainAhead(x, y, dir, vision);
+                if (grainInDirection > bestAmount) {
+                    bestAmount = grainInDirection;
+                    bestDirection = dir;
+                }
+            }
+            agent.setDirection(bestDirection);
+        }
+    }
+
+    private int grainAhead(int x, int y, Direction direction, int vision) {
+        int total = 0;
+        for (int distance = 1; distance <= vision; distance++) {
+            total += getGrainAhead(x, y, direction, distance);
+        }
+        return total;
+    }
+
+    /**
+     * Agents on the same patch share its grain equally, then the patch is emptied
+     */
+    @Override
+    protected void harvest() {
+        AgentStore.Cursor agent = agents.cursor();
+        while (agent.next()) {
+            int x = agent.x(), y = agent.y();
+            agent.setWealth(agent.wealth() + map[x][y].getGrainHere() / occupancy[x * height + y]);
+        }
+        agent.reset();
+        while (agent.next()) {
+            map[agent.x()][agent.y()].setGrainHere(0);
+        }
+    }
+
+    /**
+     * Move, eat, age and respawn dead agents in place
+     */
+    @Override
+    protected void moveEatAgeDie() {
+        AgentStore.Cursor agent = agents.cursor();
+        while (agent.next()) {
+            Direction direction = agent.direction();
+            if (direction != null) {
+                placeAt(agent, (agent.x() + direction.getDx() + width) % width,
+                        (agent.y() + direction.getDy() + height) % height);
+            }
+            int wealth = agent.wealth() - agent.metabolism();
+            int age = agent.age() + 1;
+            agent.setWealth(wealth);
+            agent.setAge(age);
+            if (wealth < 0 || age >= agent.lifeExpectancy()) {
+                recordRespawn();
+                respawn(agent);
+            }
+        }
+    }
+
+    /**
+     * Reset an agent following NetLogo's set-initial-turtle-vars logic
+     */
+    private void respawn(AgentStore.Cursor agent) {
+        int lifeExpectancy = minLifeExpectancy + 
+                             turtleRandom.nextInt(maxLifeExpectancy - minLifeExpectancy + 1);
+        int metabolism = 1 + turtleRandom.nextInt(maxMetabolism);
+        agent.setLifeExpectancy(lifeExpectancy);
+        agent.setMetabolism(metabolism);
+        agent.setVision(1 + turtleRandom.nextInt(maxVision));
+        agent.setWealth(metabolism + turtleRandom.nextInt(50));
+        agent.setAge(turtleRandom.nextInt(lifeExpectancy));
+        int[] location = getRandomPatchLocation();
+        placeAt(agent, location[0], location[1]);
+    }
+
+    /**
+     * Move an agent to a patch, keeping the occupancy counts up to date
+     */
+    private void placeAt(AgentStore.Cursor agent, int newX, int newY) {
+        moveOccupant(agent.x(), agent.y(), newX, newY);
+        agent.setX(newX);
+        agent.setY(newY);
+    }
+
+    @Override
+    public PopulationStats getPopulationStats() {
+        if (agents == null) {
+            return new PopulationStats();
+        }
+        if (isApproximateStats()) {
+            return super.getPopulationStats();
+        }
+        PopulationStats stats = new PopulationStats();
+        AgentStore.Cursor agent = agents.cursor();
+        while (agent.next()) {
+            stats.add(agent.wealth());
+        }
+        return stats;
+    }
+
+    @Override
+    protected void addWealths(WealthSketch sketch, int from, int to) {
+        AgentStore.Cursor agent = agents.cursor();
+        for (int i = from; i < to; i++) {
+            agent.moveTo(i);
+            sketch.add(agent.wealth());
+        }
+    }
+
+    @Override
+    protected int[] getWealthColumn() {
+        int[] wealths = new int[getPopulation()];
+        AgentStore.Cursor agent = agents.cursor();
+        while (agent.next()) {
+            wealths[(int) agent.index()] = agent.wealth();
+        }
+        return wealths;
+    }
+
+    @Override
+    public int[] getAgentState(int index) {
+        AgentStore.Cursor agent = agents.cursor();
+        agent.moveTo(index);
+        return new int[]{agent.x(), agent.y(), agent.age(), agent.wealth(),
+                         agent.metabolism(), agent.vision(), agent.lifeExpectancy()};
+    }
+
+    @Override
+    protected long hashAgents(long hash) {
+        AgentStore.Cursor agent = agents.cursor();
+        while (agent.next()) {
+            hash = StateHash.agent(hash, agent.x(), agent.y(), agent.age(), agent.wealth(),
+                                   agent.metabolism(), agent.vision(), agent.lifeExpectancy());
+        }
+        return hash;
+    }
+
+    @Override
+    protected void rebuildOccupancy() {
+        occupancy = new int[width * height];
+        if (agents == null) {
+            return;
+        }
+        AgentStore.Cursor agent = agents.cursor();
+        while (agent.next()) {
+            occupancy[agent.x() * height + agent.y()]++;
+        }
+    }
+
+    @Override
+    public int getPopulation() {
+        return agents == null ? 0 : (int) agents.size();
+    }
+
+    /**
+     * Off-heap agent records, for reporters that need more than wealth
+     */
+    public AgentStore agents() {
+        return agents;
+    }
+
+    @Override
+    public void setHarvestThreads(int threads) {
+        throw new UnsupportedOperationException("Parallel harvest works on heap turtles only");
+    }
+
+    @Override
+    public void enableTiledStepping(int tileCount, TiledStepper.Orientation orientation) {
+        throw new UnsupportedOperationException("Tiled stepping works on heap turtles only");
+    }
+
+    @Override
+    public void setPerAgentRandomStreams(boolean perAgentStreams) {
+        throw new UnsupportedOperationException("Per-agent random streams work on heap turtles only");
+    }
+
+    @Override
+    public void setSpatialSortInterval(int interval) {
+        throw new UnsupportedOperationException("Spatial sorting works on heap turtles only");
+    }
+
+    @Override
+    public <T extends World> T forkAs(Class<T> model) {
+        throw new UnsupportedOperationException("Forking works on heap turtles only");
+    }
+
+    @Override
+    protected void copyStateFrom(World source) {
+        throw new UnsupportedOperationException("Forking works on heap turtles only");
+    }
+
+    /**
+     * Stop the world's workers and release the off-heap agent store
+     */
+    @Override
+    public void close() {
+        super.close();
+        if (agents != null) {
+            agents.close();
+            agents = null;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package core;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Harvest on several threads, split into two phases: every turtle first
+ * gathers its own share (grain divided by the world's live occupancy count,
+ * with World.harvest's integer division) from patches nobody writes, and only
+ * then are the patches emptied. Each turtle's wealth is written by one thread
+ * only, so the result equals sequential harvest for any number of threads.
+ * Runs with the world's processing order, split into bands.
+ */
+public class ParallelHarvest {
+    private final World world;
+    private final int threads;
+    private final ExecutorService workers;
+
+    ParallelHarvest(World world, int threads) {
+        this.world = world;
+        this.threads = threads;
+        this.workers = Bands.pool(threads, "harvest-worker");
+    }
+
+    /**
+     * Let every turtle harvest the grain of its patch, and with
+     * withSpreadWealth also its share of the wealth spread there
+     */
+    public void harvest(boolean withSpreadWealth) {
+        List<Turtle> turtles = world.processingOrder;
+        Patch[][] map = world.map;
+        int height = world.height;
+        int[] occupancy = world.occupancy; // kept current as turtles move
+
+        // Phase 1: every turtle gathers its share; patches are only read
+        Bands.run(workers, threads, turtles.size(), (from, to) -> {
+            for (int i = from; i < to; i++) {
+                Turtle turtle = turtles.get(i);
+                Patch patch = map[turtle.x][turtle.y];
+                int turtlesOnPatch = occupancy[turtle.x * height + turtle.y];
+                turtle.wealth += patch.getGrainHere() / turtlesOnPatch;
+                if (withSpreadWealth) {
+                    int spreadWealth = patch.getSpreadWealth();
+                    if (spreadWealth > 0) {
+                        turtle.wealth += spreadWealth / turtlesOnPatch;
+                    }
+                }
+            }
+        });
+
+        // Phase 2: empty the harvested patches
+        Bands.run(workers, threads, turtles.size(), (from, to) -> {
+            for (int i = from; i < to; i++) {
+                Turtle turtle = turtles.get(i);
+                map[turtle.x][turtle.y].setGrainHere(0);
+            }
+        });
+    }
+
+    /**
+     * Stop the worker threads
+     */
+    void shutdown() {
+        if (workers != null) {
+            workers.shutdown();
+        }
+    }
+}
@@ -2,6 +2,12 @@ package core;
 
 public class Patch {
 
+    /**
+     * Stand-in for every barren (max grain 0) patch of a sparse landscape. It
+     * is shared, so it only accepts writes that leave it unchanged.
+     */
+    static final Patch BARREN = new Barren();
+
     private int grainHere;
     private int maxGrain;
     private int spreadWealth; // Wealth spread to this patch
@@ -12,6 +18,16 @@ public class Patch {
         spreadWealth = 0;
     }
 
+    /**
+     * An independent patch with the same max grain, grain and spread wealth
+     */
+    public Patch copy() {
+        Patch patch = new Patch(maxGrain);
+        patch.grainHere = grainHere;
+        patch.spreadWealth = spreadWealth;
+        return patch;
+    }
+
     /**
      * This method grows the grain on the patch by the growth rate.
      * If the grain on the patch is more than the max grain, it is set to the max 
@@ -78,4 +94,31 @@ public class Patch {
         return spreadWealth;
     }
 
-}
\ No newline at end of file
+    private static final class Barren extends Patch {
+        Barren() {
+            super(0);
+        }
+
+        @Override
+        public Patch copy() {
+            return this;
+        }
+
+        @Override
+        public void setGrainHere(int grainHere) {
+            if (grainHere != 0) {
+                throw new UnsupportedOperationException("Barren patches hold no grain");
+            }
+        }
+
+        @Override
+        public void setMaxGrain(int maxGrain) {
+            throw new UnsupportedOperationException("Barren patches are shared");
+        }
+
+        @Override
+        public void addSpreadWealth(int wealth) {
+            throw new UnsupportedOperationException("Barren patches are shared");
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package core;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.SubmissionPublisher;
+
+/**
+ * Publishes a TickSnapshot to Flow subscribers at the end of sampled ticks.
+ * Each subscriber has a bounded buffer; what happens when a slow subscriber's
+ * buffer is full depends on the policy:
+ * - BLOCK: World.step() waits for the subscriber, throttling the simulation
+ * - DROP: the snapshot is skipped for that subscriber, so it sees a sample
+ */
+public class SnapshotPublisher implements Flow.Publisher<TickSnapshot>, AutoCloseable {
+
+    public enum BackPressure {
+        BLOCK,
+        DROP
+    }
+
+    private final SubmissionPublisher<TickSnapshot> publisher;
+    private final BackPressure policy;
+    private final int sampleEvery;
+    private final boolean includeWealths;
+    private int droppedCount;
+
+    /**
+     * @param policy What to do when a subscriber falls behind
+     * @param sampleEvery Publish every n-th tick (1 for every tick)
+     * @param bufferSize Snapshots buffered per subscriber
+     * @param includeWealths Whether snapshots carry the full wealth column
+     */
+    public SnapshotPublisher(BackPressure policy, int sampleEvery, int bufferSize, boolean includeWealths) {
+        this(policy, sampleEvery, bufferSize, includeWealths, ForkJoinPool.commonPool());
+    }
+
+    public SnapshotPublisher(BackPressure policy, int sampleEvery, int bufferSize, boolean includeWealths,
+                             Executor executor) {
+        if (sampleEvery < 1) {
+            throw new IllegalArgumentException("sampleEvery must be at least 1");
+        }
+        this.publisher = new SubmissionPublisher<>(executor, bufferSize);
+        this.policy = policy;
+        this.sampleEvery = sampleEvery;
+        this.includeWealths = includeWealths;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super TickSnapshot> subscriber) {
+        publisher.subscribe(subscriber);
+    }
+
+    /**
+     * Whether a snapshot should be built for this tick
+     */
+    boolean wantsTick(int tick) {
+        return tick % sampleEvery == 0 && publisher.hasSubscribers();
+    }
+
+    boolean includesWealths() {
+        return includeWealths;
+    }
+
+    /**
+     * Deliver a snapshot according to the back-pressure policy
+     */
+    void publish(TickSnapshot snapshot) {
+        if (policy == BackPressure.BLOCK) {
+            publisher.submit(snapshot);
+        } else {
+            publisher.offer(snapshot, (subscriber, dropped) -> {
+                droppedCount++;
+                return false;
+            });
+        }
+    }
+
+    /**
+     * Snapshots skipped for slow subscribers under the DROP policy
+     */
+    public int getDroppedCount() {
+        return droppedCount;
+    }
+
+    /**
+     * Complete every subscriber
+     */
+    @Override
+    public void close() {
+        publisher.close();
+    }
+}
@@ -0,0 +1,100 @@
+package core;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Orders turtles by the patch they stand on, so that a pass over the turtles
+ * walks the landscape almost sequentially instead of jumping around it.
+ * Small grids use a counting sort by patch index (x * height + y) whose
+ * histogram is the world's occupancy array; grids much larger than the
+ * population are sorted by Z-order (Morton) code, which also keeps vertical
+ * neighbours close for the decide lookahead.
+ */
+final class SpatialOrder {
+    // Counting sort while the patch count is at most this many times the population
+    private static final int COUNTING_SORT_RATIO = 4;
+
+    private SpatialOrder() {}
+
+    /**
+     * Rearrange order in place; it must contain the turtles counted in occupancy
+     */
+    static void sort(List<Turtle> order, int[] occupancy, int width, int height) {
+        Turtle[] turtles = order.toArray(new Turtle[0]);
+        if ((long) width * height <= (long) COUNTING_SORT_RATIO * turtles.length) {
+            countingSort(turtles, occupancy, height);
+        } else {
+            zOrderSort(turtles, width, height);
+        }
+        for (int i = 0; i < turtles.length; i++) {
+            order.set(i, turtles[i]);
+        }
+    }
+
+    private static void countingSort(Turtle[] turtles, int[] occupancy, int height) {
+        int[] start = new int[occupancy.length];
+        int offset = 0;
+        for (int patch = 0; patch < occupancy.length; patch++) {
+            start[patch] = offset;
+            offset += occupancy[patch];
+        }
+        Turtle[] sorted = new Turtle[turtles.length];
+        for (Turtle turtle : turtles) {
+            sorted[start[turtle.x * height + turtle.y]++] = turtle;
+        }
+        System.arraycopy(sorted, 0, turtles, 0, turtles.length);
+    }
+
+    private static void zOrderSort(Turtle[] turtles, int width, int height) {
+        int coordinateBits = 32 - Integer.numberOfLeadingZeros(Math.max(width, height) - 1);
+        int indexBits = 32 - Integer.numberOfLeadingZeros(Math.max(1, turtles.length - 1));
+        Turtle[] sorted = new Turtle[turtles.length];
+        if (2 * coordinateBits + indexBits <= 63) {
+            // Morton code above the original position, both in a non-negative long
+            long[] keys = new long[turtles.length];
+            for (int i = 0; i < turtles.length; i++) {
+                keys[i] = (morton(turtles[i]) << indexBits) | i;
+            }
+            Arrays.sort(keys);
+            long indexMask = (1L << indexBits) - 1;
+            for (int i = 0; i < keys.length; i++) {
+                sorted[i] = turtles[(int) (keys[i] & indexMask)];
+            }
+        } else {
+            // Too wide to pack with the position: a stable sort by code alone
+            long[] codes = new long[turtles.length];
+            Integer[] positions = new Integer[turtles.length];
+            for (int i = 0; i < turtles.length; i++) {
+                codes[i] = morton(turtles[i]);
+                positions[i] = i;
+            }
+            Arrays.sort(positions, (a, b) -> Long.compare(codes[a], codes[b]));
+            for (int i = 0; i < positions.length; i++) {
+                sorted[i] = turtles[positions[i]];
+            }
+        }
+        System.arraycopy(sorted, 0, turtles, 0, turtles.length);
+    }
+
+    /**
+     * Z-order code of a turtle's patch, interleaving all 31 bits of each
+     * coordinate into a non-negative long
+     */
+    private static long morton(Turtle turtle) {
+        return spreadBits(turtle.x) | (spreadBits(turtle.y) << 1);
+    }
+
+    /**
+     * Interleave the bits of a non-negative v with zeros
+     */
+    private static long spreadBits(int v) {
+        long x = v & 0xFFFFFFFFL;
+        x = (x | (x << 16)) & 0x0000FFFF0000FFFFL;
+        x = (x | (x << 8)) & 0x00FF00FF00FF00FFL;
+        x = (x | (x << 4)) & 0x0F0F0F0F0F0F0F0FL;
+        x = (x | (x << 2)) & 0x3333333333333333L;
+        x = (x | (x << 1)) & 0x5555555555555555L;
+        return x;
+    }
+}
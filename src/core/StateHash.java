@@ -0,0 +1,54 @@
+package core;
+
+/**
+ * 64-bit hashing of world state. The per-tick hash covers every agent field
+ * in turtle order and every patch's grain and spread wealth; a rolling hash
+ * chains the per-tick hashes so one value identifies a whole trajectory.
+ * Patch hashes are summed rather than chained, so a landscape's hash can be
+ * kept up to date patch by patch as grain changes.
+ */
+public final class StateHash {
+    private static final long SEED = 0x243F6A8885A308D3L;
+    private static final long MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+    private StateHash() {}
+
+    public static long start() {
+        return SEED;
+    }
+
+    /**
+     * Fold one value into a running hash
+     */
+    public static long mix(long hash, long value) {
+        hash ^= value;
+        hash *= MULTIPLIER;
+        return hash ^ (hash >>> 29);
+    }
+
+    /**
+     * Fold one agent's state into a running hash
+     */
+    public static long agent(long hash, int x, int y, int age, int wealth,
+                             int metabolism, int vision, int lifeExpectancy) {
+        hash = mix(hash, ((long) x << 32) | (y & 0xFFFFFFFFL));
+        hash = mix(hash, ((long) age << 32) | (wealth & 0xFFFFFFFFL));
+        hash = mix(hash, ((long) metabolism << 32) | (vision & 0xFFFFFFFFL));
+        return mix(hash, lifeExpectancy);
+    }
+
+    /**
+     * Hash of one patch by its index (x * height + y), to be summed over the
+     * landscape
+     */
+    public static long patch(long index, int grain, int spreadWealth) {
+        return mix(mix(mix(SEED, index), grain), spreadWealth);
+    }
+
+    /**
+     * Chain a tick's state hash onto the rolling hash of the ticks before it
+     */
+    public static long roll(long rollingHash, long tickHash) {
+        return mix(rollingHash, tickHash);
+    }
+}
@@ -0,0 +1,252 @@
+package core;
+
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.function.IntBinaryOperator;
+
+/**
+ * The fixed max-grain landscape of a world, following NetLogo's
+ * setup-patches logic. Terrain is immutable once generated, so worlds built
+ * with the same size, best-land percentage and seed can share one instance
+ * instead of each running the 15 diffusion passes. Every world still keeps
+ * its own grain and spread wealth on its patches.
+ * Diffusion can run on several threads with identical results. Best land is
+ * either drawn from java.util.Random in patch order, as NetLogo does, or from
+ * a counter-based generator keyed by (seed, x, y), which can be drawn in
+ * parallel too but gives a different landscape for the same seed.
+ */
+public final class Terrain {
+    // Global constant, corresponding to NetLogo's max-grain
+    public static final int MAX_GRAIN = 50;
+
+    // java.util.Random's linear congruential generator
+    private static final long MULTIPLIER = 0x5DEECE66DL;
+    private static final long ADDEND = 0xBL;
+    private static final long MASK = (1L << 48) - 1;
+
+    private final int width, height;
+    private final int percentBestLand;
+    private final long seed;
+    private final boolean counterBased;
+    private final int[] maxGrain; // index x * height + y
+
+    private Terrain(int width, int height, int percentBestLand, long seed, boolean counterBased,
+                    int[] maxGrain) {
+        this.width = width;
+        this.height = height;
+        this.percentBestLand = percentBestLand;
+        this.seed = seed;
+        this.counterBased = counterBased;
+        this.maxGrain = maxGrain;
+    }
+
+    /**
+     * Generate the landscape a world with these settings would build in
+     * initialize(seed)
+     */
+    public static Terrain generate(int width, int height, int percentBestLand, long seed) {
+        return generate(width, height, percentBestLand, seed, 1, false);
+    }
+
+    /**
+     * Generate a landscape, diffusing on the given number of threads. The
+     * result never depends on the thread count.
+     * @param counterBased Draw best land per patch from (seed, x, y) in
+     *                     parallel instead of from Random in patch order
+     */
+    public static Terrain generate(int width, int height, int percentBestLand, long seed,
+                                   int threads, boolean counterBased) {
+        int[] bestLand = new int[width * height];
+        int[] grain = new int[width * height];
+        int[] next = new int[width * height];
+        try (ExecutorService pool = Bands.pool(threads, "terrain")) {
+            // Give some patches the highest grain amount - these are the "best land"
+            if (counterBased) {
+                Bands.run(pool, threads, width, (from, to) -> {
+                    for (int x = from; x < to; x++) {
+                        for (int y = 0; y < height; y++) {
+                            if (patchDraw(seed, x, y) * 100.0 <= percentBestLand) {
+                                bestLand[x * height + y] = MAX_GRAIN;
+                                grain[x * height + y] = MAX_GRAIN;
+                            }
+                        }
+                    }
+                });
+            } else {
+                Random random = new Random(seed);
+                for (int i = 0; i < grain.length; i++) {
+                    if (random.nextDouble() * 100.0 <= percentBestLand) {
+                        bestLand[i] = MAX_GRAIN;
+                        grain[i] = MAX_GRAIN;
+                    }
+                }
+            }
+
+            // 5 rounds of resetting best land then diffusing, then 10 plain diffusions
+            int[] current = grain;
+            for (int round = 0; round < 15; round++) {
+                int[] source = current, target = next;
+                if (round < 5) {
+                    Bands.run(pool, threads, width, (from, to) -> {
+                        for (int i = from * height; i < to * height; i++) {
+                            if (bestLand[i] != 0) {
+                                source[i] = bestLand[i];
+                            }
+                        }
+                    });
+                }
+                Bands.run(pool, threads, width, (from, to) -> {
+                    for (int x = from; x < to; x++) {
+                        diffuseColumn(source, target, x, width, height);
+                    }
+                });
+                current = target;
+                next = source;
+            }
+            // Grain amounts are whole after every diffusion, so they are the final max-grain
+            return new Terrain(width, height, percentBestLand, seed, counterBased, current);
+        }
+    }
+
+    /**
+     * Diffuse one column of patches following NetLogo's diffuse logic
+     */
+    private static void diffuseColumn(int[] grain, int[] target, int x, int width, int height) {
+        boolean interior = x > 0 && x < width - 1;
+        for (int y = 0; y < height; y++) {
+            int i = x * height + y;
+            if (interior && y > 0 && y < height - 1) {
+                // diffusedGrain's sum for patches away from the edges, read straight from the array
+                double sum = 0.0;
+                sum += grain[i - height] * 0.25 / 4;
+                sum += grain[i - 1] * 0.25 / 4;
+                sum += grain[i] * (1 - 0.25);
+                sum += grain[i + 1] * 0.25 / 4;
+                sum += grain[i + height] * 0.25 / 4;
+                target[i] = (int) sum;
+            } else {
+                target[i] = diffusedGrain((px, py) -> grain[px * height + py], x, y, width, height, 0.25);
+            }
+        }
+    }
+
+    /**
+     * Uniform draw in [0, 1) for one patch, a function of (seed, x, y) only,
+     * so patches can be drawn in any order and on any thread (SplitMix64)
+     */
+    static double patchDraw(long seed, int x, int y) {
+        long z = mix64(seed) + (((long) x << 32) | (y & 0xFFFFFFFFL)) * 0x9E3779B97F4A7C15L;
+        return (mix64(z) >>> 11) * 0x1.0p-53;
+    }
+
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Grain of one patch after a diffusion, pulled from its four neighbours.
+     * NetLogo's diffuse pushes shares from every patch in turn; the
+     * contributions are summed in the order it adds them (by source patch,
+     * then keep, up, down, right, left), so the result is identical and
+     * patches can be computed in any order and on any thread.
+     */
+    static int diffusedGrain(IntBinaryOperator grain, int x, int y, int width, int height, double rate) {
+        int up = (y + 1) % height;
+        int down = (y - 1 + height) % height;
+        int right = (x + 1) % width;
+        int left = (x - 1 + width) % width;
+        if (x > 0 && x < width - 1 && y > 0 && y < height - 1) {
+            // Away from the wrapped edges the sources come in index order
+            double sum = 0.0;
+            sum += grain.applyAsInt(left, y) * rate / 4;
+            sum += grain.applyAsInt(x, down) * rate / 4;
+            sum += grain.applyAsInt(x, y) * (1 - rate);
+            sum += grain.applyAsInt(x, up) * rate / 4;
+            sum += grain.applyAsInt(right, y) * rate / 4;
+            return (int) sum;
+        }
+
+        // Sort (source index, step within the source) of the five contributions
+        long[] order = {contribution(x, y, 0, height), contribution(x, down, 1, height),
+                        contribution(x, up, 2, height), contribution(left, y, 3, height),
+                        contribution(right, y, 4, height)};
+        for (int i = 1; i < order.length; i++) {
+            long key = order[i];
+            int j = i - 1;
+            while (j >= 0 && order[j] > key) {
+                order[j + 1] = order[j];
+                j--;
+            }
+            order[j + 1] = key;
+        }
+        double sum = 0.0;
+        for (long key : order) {
+            long source = key >>> 3;
+            double currentGrain = grain.applyAsInt((int) (source / height), (int) (source % height));
+            sum += (key & 7) == 0 ? currentGrain * (1 - rate) : currentGrain * rate / 4;
+        }
+        return (int) sum;
+    }
+
+    private static long contribution(int sourceX, int sourceY, int step, int height) {
+        return ((long) sourceX * height + sourceY) << 3 | step;
+    }
+
+    /**
+     * Whether this is the landscape a world with these settings generates
+     */
+    public boolean matches(int width, int height, int percentBestLand, long seed) {
+        return this.width == width && this.height == height
+            && this.percentBestLand == percentBestLand && this.seed == seed;
+    }
+
+    /**
+     * Whether best land was drawn from (seed, x, y) rather than in patch order
+     */
+    public boolean isCounterBased() {
+        return counterBased;
+    }
+
+    /**
+     * Put a random generator seeded with this terrain's seed into the state it
+     * would be in after generating the terrain, so the draws that follow (turtle
+     * setup) are unchanged when generation is skipped. Counter-based
+     * generation draws nothing, so the generator is just seeded.
+     */
+    public void skipGeneration(Random random) {
+        if (counterBased) {
+            random.setSeed(seed);
+            return;
+        }
+        // One nextDouble() per patch, two generator steps each
+        long steps = 2L * width * height;
+        long multiplier = 1, addend = 0;         // accumulated jump
+        long stepMultiplier = MULTIPLIER, stepAddend = ADDEND;  // jump of 2^bit steps
+        while (steps > 0) {
+            if ((steps & 1) != 0) {
+                multiplier = (multiplier * stepMultiplier) & MASK;
+                addend = (addend * stepMultiplier + stepAddend) & MASK;
+            }
+            stepAddend = (stepAddend * stepMultiplier + stepAddend) & MASK;
+            stepMultiplier = (stepMultiplier * stepMultiplier) & MASK;
+            steps >>>= 1;
+        }
+        long state = ((seed ^ MULTIPLIER) & MASK) * multiplier + addend;
+        // setSeed scrambles its argument with the multiplier, so undo that
+        random.setSeed((state & MASK) ^ MULTIPLIER);
+    }
+
+    public int getMaxGrain(int x, int y) {
+        return maxGrain[x * height + y];
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+}
@@ -0,0 +1,106 @@
+package core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The ordered, named phases a world runs every tick. World sets up decide,
+ * harvest, move and grow; models insert or replace phases (e.g. the tax
+ * world adds "tax" after "grow") instead of overriding step(), and callers
+ * can recompose the pipeline of a world before running it.
+ * Phases run in order on the stepping thread; World.step() advances the tick
+ * counter and reports statistics after the last one.
+ */
+public final class TickPipeline {
+
+    /**
+     * One phase of a tick, usually a method reference on its world
+     */
+    public interface Phase {
+        void run();
+    }
+
+    private final List<String> names = new ArrayList<>();
+    private final List<Phase> phases = new ArrayList<>();
+
+    /**
+     * Append a phase
+     */
+    public TickPipeline add(String name, Phase phase) {
+        checkUnique(name);
+        names.add(name);
+        phases.add(phase);
+        return this;
+    }
+
+    /**
+     * Insert a phase right after an existing one
+     */
+    public TickPipeline addAfter(String existing, String name, Phase phase) {
+        checkUnique(name);
+        int index = indexOf(existing) + 1;
+        names.add(index, name);
+        phases.add(index, phase);
+        return this;
+    }
+
+    /**
+     * Insert a phase right before an existing one
+     */
+    public TickPipeline addBefore(String existing, String name, Phase phase) {
+        checkUnique(name);
+        int index = indexOf(existing);
+        names.add(index, name);
+        phases.add(index, phase);
+        return this;
+    }
+
+    /**
+     * Swap the implementation of an existing phase, keeping its position
+     */
+    public TickPipeline replace(String name, Phase phase) {
+        phases.set(indexOf(name), phase);
+        return this;
+    }
+
+    /**
+     * Drop a phase
+     */
+    public TickPipeline remove(String name) {
+        int index = indexOf(name);
+        names.remove(index);
+        phases.remove(index);
+        return this;
+    }
+
+    /**
+     * Names of the phases in the order they run
+     */
+    public List<String> getPhaseNames() {
+        return Collections.unmodifiableList(names);
+    }
+
+    /**
+     * Run every phase once, in order
+     */
+    void run() {
+        for (int i = 0; i < phases.size(); i++) {
+            phases.get(i).run();
+        }
+    }
+
+    private int indexOf(String name) {
+        int index = names.indexOf(name);
+        if (index < 0) {
+            throw new IllegalArgumentException("No tick phase named " + name + " in " + names);
+        }
+        return index;
+    }
+
+    private void checkUnique(String name) {
+        if (names.contains(name)) {
+            throw new IllegalArgumentException("Tick phase " + name + " already exists");
+        }
+    }
+}
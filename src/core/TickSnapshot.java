@@ -0,0 +1,74 @@
+package core;
+
+import utils.PopulationStats;
+
+/**
+ * Immutable summary of a world at the end of one tick
+ */
+public final class TickSnapshot {
+    private final String model;
+    private final int tick;
+    private final int population;
+    private final int poorCount;
+    private final int middleCount;
+    private final int richCount;
+    private final double avgWealth;
+    private final double gini;
+    private final int[] wealths; // null unless requested
+
+    public TickSnapshot(String model, int tick, PopulationStats stats, int[] wealths) {
+        this.model = model;
+        this.tick = tick;
+        this.population = stats.getCount();
+        this.poorCount = stats.getPoorCount();
+        this.middleCount = stats.getMiddleCount();
+        this.richCount = stats.getRichCount();
+        this.avgWealth = stats.getAvgWealth();
+        this.gini = stats.getGini();
+        this.wealths = wealths;
+    }
+
+    public String getModel() {
+        return model;
+    }
+
+    public int getTick() {
+        return tick;
+    }
+
+    public int getPopulation() {
+        return population;
+    }
+
+    public int getPoorCount() {
+        return poorCount;
+    }
+
+    public int getMiddleCount() {
+        return middleCount;
+    }
+
+    public int getRichCount() {
+        return richCount;
+    }
+
+    public double getAvgWealth() {
+        return avgWealth;
+    }
+
+    public double getGini() {
+        return gini;
+    }
+
+    public boolean hasWealths() {
+        return wealths != null;
+    }
+
+    /**
+     * Copy of every turtle's wealth at this tick, or null if the publisher 
+     * was created without the wealth column
+     */
+    public int[] getWealths() {
+        return wealths == null ? null : wealths.clone();
+    }
+}
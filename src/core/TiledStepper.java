@@ -0,0 +1,308 @@
+package core;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Bulk-synchronous parallel engine for World.step().
+ * The torus is cut into strips (vertical strips own a range of x, horizontal
+ * strips own a range of y), each owned by one worker. Every phase runs one task
+ * per tile and ends in a barrier, so the map is frozen while it is being read:
+ * - decide: each tile reads its own patches plus a halo of maxVision cells on
+ *   either side, straight from the shared map
+ * - harvest: all turtles standing on a patch belong to the tile owning that
+ *   patch, so sharing (divided by the world's occupancy count) and zeroing
+ *   never cross tiles
+ * - move/eat/age: purely per turtle; deaths are marked and then respawned
+ *   sequentially in turtle order so the random number stream is unchanged.
+ *   Occupancy tracking is suspended meanwhile and recounted afterwards.
+ * - migrate: turtles that left their strip are handed to the new owner
+ * - grow: per tile
+ * The result is identical to the sequential step.
+ */
+public class TiledStepper {
+
+    public enum Orientation {
+        VERTICAL,   // strips of columns, split on x
+        HORIZONTAL  // strips of rows, split on y
+    }
+
+    private final World world;
+    private final Orientation orientation;
+    private final Tile[] tiles;
+    private final ExecutorService workers;
+    private final int splitSize;  // width (vertical) or height (horizontal)
+    private final int otherSize;
+    private boolean[] dying = new boolean[0];
+    private boolean parallelDecide;
+    private boolean parallelMove;
+
+    public TiledStepper(World world, int tileCount, Orientation orientation) {
+        this.world = world;
+        this.orientation = orientation;
+        this.splitSize = orientation == Orientation.VERTICAL ? world.width : world.height;
+        this.otherSize = orientation == Orientation.VERTICAL ? world.height : world.width;
+        int count = Math.max(1, Math.min(tileCount, splitSize));
+        this.tiles = new Tile[count];
+        for (int i = 0; i < count; i++) {
+            tiles[i] = new Tile(splitSize * i / count, splitSize * (i + 1) / count);
+        }
+        this.workers = Executors.newFixedThreadPool(count, runnable -> {
+            Thread thread = new Thread(runnable, "tile-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Number of halo cells each tile reads beyond its own strip during decide
+     */
+    public int getHaloWidth() {
+        return world.maxVision;
+    }
+
+    public int getTileCount() {
+        return tiles.length;
+    }
+
+    /**
+     * Assign every turtle to the tile owning its patch.
+     * Called whenever the turtle list was changed outside the engine.
+     */
+    public void assignTurtles() {
+        parallelDecide = isInherited(Turtle.class, "decideDirection");
+        parallelMove = isInherited(Turtle.class, "moveEatAgeDie");
+        reassignTurtles();
+    }
+
+    private void reassignTurtles() {
+        for (Tile tile : tiles) {
+            tile.turtleIndices.clear();
+        }
+        List<Turtle> turtles = world.turtles;
+        for (int i = 0; i < turtles.size(); i++) {
+            Turtle turtle = turtles.get(i);
+            tiles[ownerOf(splitCoordinate(turtle))].turtleIndices.add(i);
+        }
+    }
+
+    /**
+     * Phase 1: every turtle decides its direction
+     */
+    void decide() {
+        if (!parallelDecide) {
+            for (Turtle turtle : world.turtles) {
+                turtle.decideDirection(world);
+            }
+            return;
+        }
+        runTiles(tile -> {
+            List<Turtle> turtles = world.turtles;
+            for (int i = 0; i < tile.turtleIndices.size(); i++) {
+                turtles.get(tile.turtleIndices.get(i)).decideDirection(world);
+            }
+        });
+    }
+
+    /**
+     * Phase 2: turtles share the grain of the patch they stand on
+     */
+    void harvest() {
+        runTiles(tile -> {
+            List<Turtle> turtles = world.turtles;
+            IntList indices = tile.turtleIndices;
+            for (int i = 0; i < indices.size(); i++) {
+                Turtle turtle = turtles.get(indices.get(i));
+                int turtlesOnPatch = world.getOccupancy(turtle.x, turtle.y);
+                turtle.wealth += world.map[turtle.x][turtle.y].getGrainHere() / turtlesOnPatch;
+            }
+            for (int i = 0; i < indices.size(); i++) {
+                Turtle turtle = turtles.get(indices.get(i));
+                world.map[turtle.x][turtle.y].setGrainHere(0);
+            }
+        });
+    }
+
+    /**
+     * Phase 3: move, eat and age in parallel, respawn in turtle order, then
+     * migrate turtles that crossed a strip border
+     */
+    void moveEatAgeDie() {
+        List<Turtle> turtles = world.turtles;
+        if (!parallelMove) {
+            for (Turtle turtle : turtles) {
+                turtle.moveEatAgeDie(world);
+            }
+            reassignTurtles();
+            return;
+        }
+        if (dying.length < turtles.size()) {
+            dying = new boolean[turtles.size()];
+        }
+        // Concurrent moves would race on the shared counts, so stop tracking
+        int[] occupancy = world.occupancy;
+        world.occupancy = null;
+        runTiles(tile -> {
+            for (int i = 0; i < tile.turtleIndices.size(); i++) {
+                int index = tile.turtleIndices.get(i);
+                dying[index] = turtles.get(index).moveEatAge(world);
+            }
+        });
+        for (int i = 0; i < turtles.size(); i++) {
+            if (dying[i]) {
+                dying[i] = false;
+                world.recordRespawn();
+                turtles.get(i).setInitialTurtleVars(world);
+            }
+        }
+        world.occupancy = occupancy;
+        world.rebuildOccupancy();
+        migrate();
+    }
+
+    /**
+     * Phase 4: grow grain on every patch
+     */
+    void growGrain() {
+        runTiles(tile -> {
+            for (int s = tile.start; s < tile.end; s++) {
+                for (int o = 0; o < otherSize; o++) {
+                    patchAt(s, o).growGrain(world.numGrainGrown);
+                }
+            }
+        });
+    }
+
+    /**
+     * Stop the worker threads
+     */
+    public void shutdown() {
+        workers.shutdown();
+    }
+
+    private void migrate() {
+        List<Turtle> turtles = world.turtles;
+        runTiles(tile -> {
+            IntList kept = new IntList();
+            for (int i = 0; i < tile.turtleIndices.size(); i++) {
+                int index = tile.turtleIndices.get(i);
+                int coordinate = splitCoordinate(turtles.get(index));
+                if (coordinate >= tile.start && coordinate < tile.end) {
+                    kept.add(index);
+                } else {
+                    tile.outbox.add(index);
+                }
+            }
+            tile.turtleIndices = kept;
+        });
+        for (Tile tile : tiles) {
+            for (int i = 0; i < tile.outbox.size(); i++) {
+                int index = tile.outbox.get(i);
+                tiles[ownerOf(splitCoordinate(turtles.get(index)))].turtleIndices.add(index);
+            }
+            tile.outbox.clear();
+        }
+    }
+
+    private void runTiles(TileTask task) {
+        List<Callable<Void>> calls = new ArrayList<>(tiles.length);
+        for (Tile tile : tiles) {
+            calls.add(() -> {
+                task.run(tile);
+                return null;
+            });
+        }
+        try {
+            for (Future<Void> future : workers.invokeAll(calls)) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Tiled step interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Tile worker failed", e.getCause());
+        }
+    }
+
+    /**
+     * Whether every turtle uses the given base-class implementation of a method,
+     * i.e. no subclass adds cross-turtle behaviour the tiles cannot see
+     */
+    private boolean isInherited(Class<?> base, String methodName) {
+        for (Turtle turtle : world.turtles) {
+            try {
+                Method method = turtle.getClass().getMethod(methodName, World.class);
+                if (method.getDeclaringClass() != base) {
+                    return false;
+                }
+            } catch (NoSuchMethodException e) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int splitCoordinate(Turtle turtle) {
+        return orientation == Orientation.VERTICAL ? turtle.x : turtle.y;
+    }
+
+    private int ownerOf(int coordinate) {
+        int owner = (int) ((long) coordinate * tiles.length / splitSize);
+        while (owner > 0 && tiles[owner].start > coordinate) owner--;
+        while (owner < tiles.length - 1 && tiles[owner].end <= coordinate) owner++;
+        return owner;
+    }
+
+    private Patch patchAt(int split, int other) {
+        return orientation == Orientation.VERTICAL ? world.map[split][other] : world.map[other][split];
+    }
+
+    private interface TileTask {
+        void run(Tile tile);
+    }
+
+    private final class Tile {
+        final int start, end;  // owned range of the split coordinate
+        IntList turtleIndices = new IntList();
+        final IntList outbox = new IntList();
+
+        Tile(int start, int end) {
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    /**
+     * Growable list of turtle indices without boxing
+     */
+    private static final class IntList {
+        private int[] values = new int[16];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int get(int i) {
+            return values[i];
+        }
+
+        int size() {
+            return size;
+        }
+
+        void clear() {
+            size = 0;
+        }
+    }
+}
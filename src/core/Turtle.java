@@ -1,8 +1,6 @@
 package core;
 
 import java.util.Random;
-import java.util.List;
-import java.util.ArrayList;
 
 public class Turtle {
     public int x, y;
@@ -12,8 +10,8 @@ public class Turtle {
     public int vision;
     public int lifeExpectancy;
     private Direction currentDirection;
-
-    private static final Random random = new Random();
+    int id;        // Position in the world's turtle list, fixed at setup
+    int respawns;  // Number of respawns, selects the turtle's next random stream
 
     public Turtle(int metabolism, int vision, int lifeExpectancy) {
         this.metabolism = metabolism;
@@ -49,8 +47,7 @@ public class Turtle {
     private int getGrainAhead(World world, Direction direction) {
         int total = 0;
         for (int distance = 1; distance <= vision; distance++) {
-            Patch patch = world.getPatchAhead(x, y, direction, distance);
-            total += patch.getGrainHere();
+            total += world.getGrainAhead(x, y, direction, distance);
         }
         return total;
     }
@@ -60,10 +57,23 @@ public class Turtle {
      * move-eat-age-die logic
      */
     public void moveEatAgeDie(World world) {
+        // Check death conditions: no grain or exceeded life expectancy
+        if (moveEatAge(world)) {
+            world.recordRespawn();
+            setInitialTurtleVars(world);
+        }
+    }
+
+    /**
+     * Move, eat and age without dying. Touches only this turtle, so the tiled 
+     * engine can run it concurrently and replay the deaths in turtle order.
+     * @return true if the turtle has to die and respawn
+     */
+    boolean moveEatAge(World world) {
         // Move forward 1 step
         if (currentDirection != null) {
-            x = (x + currentDirection.getDx() + world.width) % world.width;
-            y = (y + currentDirection.getDy() + world.height) % world.height;
+            placeAt(world, (x + currentDirection.getDx() + world.width) % world.width,
+                    (y + currentDirection.getDy() + world.height) % world.height);
         }
         
         // Consume grain according to metabolism
@@ -72,16 +82,15 @@ public class Turtle {
         // Age
         age++;
         
-        // Check death conditions: no grain or exceeded life expectancy
-        if (wealth < 0 || age >= lifeExpectancy) {
-            setInitialTurtleVars(world);
-        }
+        return wealth < 0 || age >= lifeExpectancy;
     }
 
     /**
      * Reset turtle variables following NetLogo's set-initial-turtle-vars logic
      */
     public void setInitialTurtleVars(World world) {
+        Random random = world.getTurtleRandom(this);
+
         // Randomly set new attributes
         this.lifeExpectancy = world.minLifeExpectancy + 
                              random.nextInt(world.maxLifeExpectancy 
@@ -96,16 +105,41 @@ public class Turtle {
         this.age = random.nextInt(this.lifeExpectancy);
         
         // Move to random location
-        int[] location = world.getRandomPatchLocation();
-        this.x = location[0];
-        this.y = location[1];
+        int[] location = world.getRandomPatchLocation(this);
+        placeAt(world, location[0], location[1]);
+    }
+
+    /**
+     * Take over another turtle's complete state, e.g. when a world is forked 
+     * into another model
+     */
+    public void copyStateFrom(Turtle other) {
+        x = other.x;
+        y = other.y;
+        age = other.age;
+        wealth = other.wealth;
+        metabolism = other.metabolism;
+        vision = other.vision;
+        lifeExpectancy = other.lifeExpectancy;
+        currentDirection = other.currentDirection;
+        id = other.id;
+        respawns = other.respawns;
+    }
+
+    /**
+     * Move to a patch, keeping the world's occupancy counts up to date
+     */
+    protected void placeAt(World world, int newX, int newY) {
+        world.moveOccupant(x, y, newX, newY);
+        x = newX;
+        y = newY;
     }
 
     // Keep original methods for compatibility
     public void move(World world) {
         if (currentDirection != null) {
-            x = (x + currentDirection.getDx() + world.width) % world.width;
-            y = (y + currentDirection.getDy() + world.height) % world.height;
+            placeAt(world, (x + currentDirection.getDx() + world.width) % world.width,
+                    (y + currentDirection.getDy() + world.height) % world.height);
         }
     }
     public void ageAndConsume() {
@@ -118,6 +152,7 @@ public class Turtle {
     }
 
     public void rebirth(World world) {
+        world.recordRespawn();
         setInitialTurtleVars(world);
     }
 }
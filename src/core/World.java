@@ -1,16 +1,35 @@
 package core;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Flow;
+import events.RespawnEvent;
+import events.TickEvent;
+import utils.ConvergenceDetector;
 import utils.CsvExporter;
-import utils.GiniCalculator;
+import utils.PopulationStats;
+import utils.WealthSketch;
 
-public class World {
+public class World implements AutoCloseable {
     protected int width, height;
-    protected Patch[][] map;
+    protected Patch[][] map; // Allocated by setupPatches, so subclasses may store patches elsewhere
     protected List<Turtle> turtles;
+    protected List<Turtle> processingOrder; // Order of the per-turtle phases, turtles unless sorted
     protected Random random;
+    protected Random turtleRandom; // Respawn attributes, separate from setup and placement
+    private final Random agentRandom = new Random(); // Reseeded per respawn with per-agent streams
+    private boolean perAgentStreams;
+    private long streamSeed;
+    private int sortInterval;
+    private boolean sortable; // No turtle overrides moveEatAgeDie
     protected int maxPeople;
     protected int maxVision;
     protected int maxMetabolism;
@@ -20,13 +39,55 @@ public class World {
     protected int grainGrowthInterval;
     protected int numGrainGrown;
     protected int ticks;
-    
-    // Global constant, corresponding to NetLogo's max-grain
-    private static final int MAX_GRAIN = 50;
+    protected int respawnsThisTick;
+    private int sampleInterval = 1; // Ticks between reported ticks during advance()
+    private int sampleUntil = -1;   // Last tick of the current batch, always reported
+    private int sparseSampleEvery;  // Ticks between reported ticks once converged, 0 = unchanged
     
     // CSV export
     protected CsvExporter csvExporter;
 
+    // Fixed max-grain landscape, possibly shared with other worlds
+    protected Terrain terrain;
+    protected int terrainThreads = 1;      // Threads generating the landscape
+    protected boolean counterBasedTerrain; // Best land drawn from (seed, x, y)
+
+    // Sparse landscape: barren patches share Patch.BARREN and growth only
+    // visits the fertile patches (index x * height + y); null when dense
+    private boolean sparseLandscape;
+    private int[] fertilePatches;
+
+    // Turtles per patch (index x * height + y), kept current as turtles move;
+    // null while tracking is suspended
+    protected int[] occupancy;
+
+    // Parallel tiled engine, null when stepping sequentially
+    protected TiledStepper tiledStepper;
+
+    // Two-phase parallel harvest, null when harvesting on the stepping thread
+    protected ParallelHarvest parallelHarvest;
+
+    // Tick snapshot publisher, null when nobody subscribed
+    protected SnapshotPublisher snapshotPublisher;
+
+    // Approximate statistics: sketch size, 0 for exact, and threads sketching shards
+    // on workers started by the first sketch, null until then or with one thread
+    private int statsSketchSize;
+    private int statsThreads = 1;
+    private ExecutorService statsWorkers;
+
+    // Steady-state test fed with every reported tick, null when not wanted
+    protected ConvergenceDetector convergenceDetector;
+
+    // Keyframes and per-tick deltas of this run, null when not recorded
+    private HistoryStore history;
+
+    // Phases of a tick, built on first use
+    private TickPipeline pipeline;
+
+    // JFR event of the tick between simulateTick() and completeTick()
+    private TickEvent pendingTickEvent;
+
     public World(){}
 
     public World(int width, int height, int maxPeople, int maxVision,
@@ -42,9 +103,9 @@ public class World {
         this.percentBestLand = percentBestLand;
         this.grainGrowthInterval = grainGrowthInterval;
         this.numGrainGrown = numGrainGrown;
-        this.map = new Patch[width][height];
         this.turtles = new ArrayList<>();
         this.random = new Random();
+        this.turtleRandom = new Random();
         this.ticks = 0;
         this.csvExporter = new CsvExporter();
     }
@@ -65,93 +126,243 @@ public class World {
 
     public void initialize(int seed) {
         random.setSeed(seed);
-        setupPatches();
+        turtleRandom.setSeed(seed * 0x9E3779B97F4A7C15L + 1);
+        setupPatches(seed);
+        streamSeed = StateHash.mix(StateHash.start(), seed);
         setupTurtles();
+        for (int i = 0; i < turtles.size(); i++) {
+            turtles.get(i).id = i;
+            turtles.get(i).respawns = 0;
+        }
+        processingOrder = sortInterval > 0 ? new ArrayList<>(turtles) : turtles;
+        sortable = sortInterval > 0 && usesBaseMovement();
+        rebuildOccupancy();
+        if (tiledStepper != null) {
+            tiledStepper.assignTurtles();
+        }
     }
 
     /**
-     * Setup patches following NetLogo's setup-patches logic exactly
+     * Give every turtle its own random stream for respawns, derived from the 
+     * seed, its id and how often it has respawned, instead of one shared 
+     * stream consumed in turtle order. Results then no longer depend on the 
+     * order turtles are processed in. Must be set before initialize().
      */
-    private void setupPatches() {
-        // First initialize all patches with max-grain-here = 0
-        for (int x = 0; x < width; x++) {
-            for (int y = 0; y < height; y++) {
-                map[x][y] = new Patch(0);
-            }
+    public void setPerAgentRandomStreams(boolean perAgentStreams) {
+        this.perAgentStreams = perAgentStreams;
+    }
+
+    /**
+     * Every interval ticks, reorder the per-turtle phases by patch so that 
+     * landscape reads become near-sequential (0 disables). Implies per-agent 
+     * random streams, so the results equal an unsorted world with per-agent 
+     * streams. Turtles that override moveEatAgeDie are never reordered, and 
+     * the tiled engine keeps its own order. Must be set before initialize().
+     */
+    public void setSpatialSortInterval(int interval) {
+        this.sortInterval = interval;
+        if (interval > 0) {
+            perAgentStreams = true;
         }
+    }
 
-        // Give some patches the highest grain amount - these are the "best land"
-        for (int x = 0; x < width; x++) {
-            for (int y = 0; y < height; y++) {
-                if (random.nextDouble() * 100.0 <= percentBestLand) {
-                    map[x][y].setMaxGrain(MAX_GRAIN);
-                    map[x][y].setGrainHere(MAX_GRAIN);
-                }
-            }
+    /**
+     * Reorder the per-turtle phases by patch if sorting is due this tick
+     */
+    protected void reorderTurtles() {
+        if (sortInterval <= 0 || ticks % sortInterval != 0 || tiledStepper != null || !sortable) {
+            return;
         }
+        SpatialOrder.sort(processingOrder, occupancy, width, height);
+    }
 
-        // First phase: repeat 5 times, reset best land grain then diffuse
-        for (int i = 0; i < 5; i++) {
-            // Reset best land grain to maximum value
-            for (int x = 0; x < width; x++) {
-                for (int y = 0; y < height; y++) {
-                    if (map[x][y].getMaxGrain() != 0) {
-                        map[x][y].setGrainHere(map[x][y].getMaxGrain());
-                    }
+    /**
+     * Whether every turtle moves with Turtle's own moveEatAgeDie, which only 
+     * touches the turtle itself and so does not depend on processing order
+     */
+    private boolean usesBaseMovement() {
+        for (Turtle turtle : turtles) {
+            try {
+                if (turtle.getClass().getMethod("moveEatAgeDie", World.class).getDeclaringClass() != Turtle.class) {
+                    return false; // e.g. wealth spreading reads other turtles while they move
                 }
+            } catch (NoSuchMethodException e) {
+                return false;
             }
-            diffuseGrain(0.25);
         }
+        return true;
+    }
+
+    /**
+     * Run each tick on a bulk-synchronous tiled engine with the given number of 
+     * worker threads. Results are identical to sequential stepping.
+     */
+    public void enableTiledStepping(int tileCount, TiledStepper.Orientation orientation) {
+        disableTiledStepping();
+        tiledStepper = new TiledStepper(this, tileCount, orientation);
+        tiledStepper.assignTurtles();
+    }
 
-        // Second phase: diffuse 10 more times
-        for (int i = 0; i < 10; i++) {
-            diffuseGrain(0.25);
+    /**
+     * Return to sequential stepping and stop the tile workers
+     */
+    public void disableTiledStepping() {
+        if (tiledStepper != null) {
+            tiledStepper.shutdown();
+            tiledStepper = null;
         }
+    }
 
-        // Finalize patches: round grain amounts and set max-grain-here to current grain amount
-        for (int x = 0; x < width; x++) {
-            for (int y = 0; y < height; y++) {
-                Patch patch = map[x][y];
-                int grainAmount = (int) Math.floor(patch.getGrainHere());
-                patch.setGrainHere(grainAmount);
-                patch.setMaxGrain(grainAmount);
-            }
+    /**
+     * Harvest on the given number of threads: turtles take their shares of 
+     * the patches they occupy, then patches are emptied, each phase in 
+     * parallel. Results are identical to sequential harvest; 1 harvests on 
+     * the stepping thread again. The tiled engine keeps its own harvest.
+     */
+    public void setHarvestThreads(int threads) {
+        if (parallelHarvest != null) {
+            parallelHarvest.shutdown();
+            parallelHarvest = null;
+        }
+        if (threads > 1) {
+            parallelHarvest = new ParallelHarvest(this, threads);
         }
     }
 
     /**
-     * Diffuse grain following NetLogo's diffuse logic
+     * Stop every worker pool the world has started (tile, harvest and 
+     * statistics workers). Call it once a run is finished; subclasses also 
+     * release their own storage.
      */
-    private void diffuseGrain(double rate) {
-        double[][] newGrain = new double[width][height];
-        
-        // Calculate new grain distribution
+    @Override
+    public void close() {
+        disableTiledStepping();
+        if (parallelHarvest != null) {
+            parallelHarvest.shutdown();
+            parallelHarvest = null;
+        }
+        stopStatsWorkers();
+    }
+
+    /**
+     * Count the turtles on every patch from scratch
+     */
+    protected void rebuildOccupancy() {
+        if (occupancy == null) {
+            occupancy = new int[width * height];
+        } else {
+            Arrays.fill(occupancy, 0);
+        }
+        for (Turtle turtle : turtles) {
+            occupancy[turtle.x * height + turtle.y]++;
+        }
+    }
+
+    /**
+     * Record a turtle moving between patches
+     */
+    public void moveOccupant(int fromX, int fromY, int toX, int toY) {
+        if (occupancy != null) {
+            occupancy[fromX * height + fromY]--;
+            occupancy[toX * height + toY]++;
+        }
+    }
+
+    /**
+     * Number of turtles standing on a patch
+     */
+    public int getOccupancy(int x, int y) {
+        return occupancy[x * height + y];
+    }
+
+    /**
+     * Share an already generated landscape with this world. It is used by 
+     * initialize(seed) when it was generated for the same size, best-land 
+     * percentage and seed; otherwise the world generates its own.
+     */
+    public void setTerrain(Terrain terrain) {
+        this.terrain = terrain;
+    }
+
+    public Terrain getTerrain() {
+        return terrain;
+    }
+
+    /**
+     * Generate the landscape on the given number of threads. Diffusion gives 
+     * the same landscape for any thread count; best land is still drawn in 
+     * patch order unless the terrain is counter-based. Must be set before 
+     * initialize().
+     */
+    public void setTerrainThreads(int threads) {
+        this.terrainThreads = Math.max(1, threads);
+    }
+
+    /**
+     * Draw best land per patch from a counter-based generator keyed by 
+     * (seed, x, y) instead of from the world's generator in patch order, so 
+     * that generation runs fully in parallel. The landscape then differs from 
+     * NetLogo's for the same seed, but not with the thread count, and turtle 
+     * setup draws from a freshly seeded generator. Must be set before 
+     * initialize().
+     */
+    public void setCounterBasedTerrain(boolean counterBasedTerrain) {
+        this.counterBasedTerrain = counterBasedTerrain;
+    }
+
+    /**
+     * Store only the fertile patches: every barren patch (max grain 0) is one 
+     * shared read-only patch until wealth is spread onto it, and grain growth 
+     * skips barren patches. Results are unchanged. Must be set before 
+     * initialize().
+     */
+    public void setSparseLandscape(boolean sparseLandscape) {
+        this.sparseLandscape = sparseLandscape;
+    }
+
+    /**
+     * Setup patches following NetLogo's setup-patches logic exactly, reusing 
+     * the shared terrain when it fits
+     */
+    protected void setupPatches(int seed) {
+        if (map == null) {
+            map = new Patch[width][height];
+        }
+        if (terrain == null || !terrain.matches(width, height, percentBestLand, seed)
+            || terrain.isCounterBased() != counterBasedTerrain) {
+            terrain = Terrain.generate(width, height, percentBestLand, seed, terrainThreads, counterBasedTerrain);
+        }
+        terrain.skipGeneration(random);
+        int fertileCount = 0;
+        int[] fertile = sparseLandscape ? new int[width * height] : null;
         for (int x = 0; x < width; x++) {
             for (int y = 0; y < height; y++) {
-                double currentGrain = map[x][y].getGrainHere();
-                double keepAmount = currentGrain * (1 - rate);
-                double shareAmount = currentGrain * rate / 4; // Share with 4 neighbors
-                
-                newGrain[x][y] += keepAmount;
-                
-                // Share with 4 neighbors (up, down, left, right)
-                int[] dx = {0, 0, 1, -1};
-                int[] dy = {1, -1, 0, 0};
-                
-                for (int i = 0; i < 4; i++) {
-                    int nx = (x + dx[i] + width) % width;
-                    int ny = (y + dy[i] + height) % height;
-                    newGrain[nx][ny] += shareAmount;
+                int maxGrain = terrain.getMaxGrain(x, y);
+                if (sparseLandscape && maxGrain == 0) {
+                    map[x][y] = Patch.BARREN;
+                    continue;
+                }
+                map[x][y] = new Patch(maxGrain);
+                map[x][y].setGrainHere(maxGrain);
+                if (sparseLandscape) {
+                    fertile[fertileCount++] = x * height + y;
                 }
             }
         }
-        
-        // Update grain amounts
-        for (int x = 0; x < width; x++) {
-            for (int y = 0; y < height; y++) {
-                map[x][y].setGrainHere((int) newGrain[x][y]);
-            }
+        fertilePatches = sparseLandscape ? Arrays.copyOf(fertile, fertileCount) : null;
+    }
+
+    /**
+     * The patch at the given coordinates, replacing a shared barren patch by 
+     * one of its own first
+     */
+    protected Patch writablePatch(int x, int y) {
+        Patch patch = map[x][y];
+        if (patch == Patch.BARREN) {
+            patch = new Patch(0);
+            map[x][y] = patch;
         }
+        return patch;
     }
 
     /**
@@ -165,7 +376,7 @@ public class World {
             int lifeExpectancy = minLifeExpectancy + 
                                random.nextInt(maxLifeExpectancy - minLifeExpectancy + 1);
             
-            Turtle turtle = new Turtle(metabolism, vision, lifeExpectancy);
+            Turtle turtle = newTurtle(metabolism, vision, lifeExpectancy);
             
             // Randomly place on a patch
             turtle.x = random.nextInt(width);
@@ -182,36 +393,413 @@ public class World {
     }
 
     /**
-     * Main step function following NetLogo's go logic
+     * Create one turtle of this model's turtle class
+     */
+    protected Turtle newTurtle(int metabolism, int vision, int lifeExpectancy) {
+        return new Turtle(metabolism, vision, lifeExpectancy);
+    }
+
+    /**
+     * An independent copy of this world at its current tick. Stepping the copy 
+     * gives exactly the same results as stepping this world would.
+     */
+    public World fork() {
+        return forkAs(getClass());
+    }
+
+    /**
+     * Copy this world's current state into a new world of another model, 
+     * typically a subclass such as the tax or spreading world, so variants can 
+     * branch from one shared history. The model needs the public constructor 
+     * taking the ten world parameters; turtles become the model's turtle class. 
+     * The copy steps sequentially and without CSV export or snapshots.
+     */
+    public <T extends World> T forkAs(Class<T> model) {
+        T fork;
+        try {
+            fork = model.getConstructor(int.class, int.class, int.class, int.class, int.class,
+                                        int.class, int.class, int.class, int.class, int.class)
+                        .newInstance(width, height, maxPeople, maxVision, maxMetabolism,
+                                     minLifeExpectancy, maxLifeExpectancy, percentBestLand,
+                                     grainGrowthInterval, numGrainGrown);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException("Cannot fork into " + model.getSimpleName(), e);
+        }
+        fork.copyStateFrom(this);
+        return fork;
+    }
+
+    /**
+     * Take over the complete simulation state of another world with the same 
+     * parameters
+     */
+    protected void copyStateFrom(World source) {
+        terrain = source.terrain;
+        terrainThreads = source.terrainThreads;
+        counterBasedTerrain = source.counterBasedTerrain;
+        sparseLandscape = source.sparseLandscape;
+        statsSketchSize = source.statsSketchSize;
+        statsThreads = source.statsThreads;
+        fertilePatches = source.fertilePatches;
+        if (map == null) {
+            map = new Patch[width][height];
+        }
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                map[x][y] = source.map[x][y].copy();
+            }
+        }
+
+        turtles.clear();
+        for (Turtle original : source.turtles) {
+            Turtle turtle = newTurtle(original.metabolism, original.vision, original.lifeExpectancy);
+            turtle.copyStateFrom(original);
+            turtles.add(turtle);
+        }
+        sortInterval = source.sortInterval;
+        if (source.processingOrder == source.turtles) {
+            processingOrder = turtles;
+        } else {
+            processingOrder = new ArrayList<>(turtles.size());
+            for (Turtle original : source.processingOrder) {
+                processingOrder.add(turtles.get(original.id));
+            }
+        }
+        sortable = sortInterval > 0 && usesBaseMovement();
+
+        random = copyRandom(source.random);
+        turtleRandom = copyRandom(source.turtleRandom);
+        perAgentStreams = source.perAgentStreams;
+        streamSeed = source.streamSeed;
+        ticks = source.ticks;
+        rebuildIndexes();
+    }
+
+    /**
+     * Recompute everything derived from the turtles and patches (occupancy 
+     * counts, and model indexes in subclasses) after they were replaced 
+     * wholesale
+     */
+    protected void rebuildIndexes() {
+        rebuildOccupancy();
+    }
+
+    /**
+     * A generator that continues with exactly the draws the given one would 
+     * make next. Random has no state accessor, but serializes its full state.
+     */
+    private static Random copyRandom(Random random) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+                out.writeObject(random);
+            }
+            try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+                return (Random) in.readObject();
+            }
+        } catch (IOException | ClassNotFoundException e) {
+            throw new IllegalStateException("Cannot copy random generator", e);
+        }
+    }
+
+    /**
+     * Main step function following NetLogo's go logic: run the tick 
+     * pipeline, then advance the tick counter and report
      */
     public void step() {
-        // 1. All turtles decide their direction
-        for (Turtle turtle : turtles) {
-            turtle.decideDirection(this);
+        simulateTick();
+        completeTick();
+    }
+
+    /**
+     * Run the phases of one tick without reporting it. step() is 
+     * simulateTick() followed by completeTick(); callers that keep export 
+     * and publishing off their compute path (e.g. EnsembleRunner outside its 
+     * CPU budget) call the two separately.
+     */
+    public void simulateTick() {
+        pendingTickEvent = beginTick();
+
+        getPipeline().run();
+        
+        ticks++;
+
+        if (history != null) {
+            history.record();
+        }
+    }
+
+    /**
+     * Export to CSV and publish the snapshot of the tick just simulated, then 
+     * close its JFR event
+     */
+    public void completeTick() {
+        reportTick();
+
+        endTick(pendingTickEvent);
+        pendingTickEvent = null;
+    }
+
+    /**
+     * This world's tick phases, set up by configurePipeline on first use. 
+     * May be recomposed before stepping.
+     */
+    public TickPipeline getPipeline() {
+        if (pipeline == null) {
+            pipeline = new TickPipeline();
+            configurePipeline(pipeline);
         }
+        return pipeline;
+    }
+
+    /**
+     * Set up the phases of a tick. Models call this and then insert or 
+     * replace phases of their own.
+     */
+    protected void configurePipeline(TickPipeline pipeline) {
+        // 1. All turtles decide their direction
+        pipeline.add("decide", this::decideDirections);
         
         // 2. Harvest grain (before moving)
-        harvest();
+        pipeline.add("harvest", this::harvest);
         
         // 3. All turtles move, eat grain, age, and possibly die
-        for (Turtle turtle : turtles) {
-            turtle.moveEatAgeDie(this);
-        }
+        pipeline.add("move", this::moveEatAgeDie);
         
         // 4. Grow grain at specified intervals
-        if (ticks % grainGrowthInterval == 0) {
-            growGrain();
+        pipeline.add("grow", () -> {
+            if (ticks % grainGrowthInterval == 0) {
+                growGrain();
+            }
+        });
+    }
+
+    /**
+     * Run n ticks, computing, exporting and publishing statistics only on 
+     * every sampleEvery-th tick and on the last one. Statistics never draw 
+     * random numbers, so the simulation is identical to n calls of step().
+     * @param sampleEvery Ticks between samples; 0 samples only the last tick
+     */
+    public void advance(int n, int sampleEvery) {
+        beginBatch(n, sampleEvery);
+        try {
+            for (int i = 0; i < n; i++) {
+                step();
+            }
+        } finally {
+            endBatch();
+        }
+    }
+
+    /**
+     * Run until the convergence detector reports a steady state, or for at 
+     * most maxTicks, sampling statistics every sampleEvery ticks
+     * @return Number of ticks run
+     */
+    public int advanceUntilConverged(int maxTicks, int sampleEvery) {
+        if (convergenceDetector == null) {
+            throw new IllegalStateException("No convergence detector attached");
+        }
+        int start = ticks;
+        beginBatch(maxTicks, Math.max(1, sampleEvery));
+        try {
+            while (ticks - start < maxTicks && !convergenceDetector.isConverged()) {
+                step();
+            }
+        } finally {
+            endBatch();
+        }
+        return ticks - start;
+    }
+
+    /**
+     * Record this run from now on, with a full keyframe every keyframeInterval 
+     * ticks and a compact delta every tick, so that any later tick can be 
+     * rebuilt quickly. The population must stay constant.
+     */
+    public HistoryStore recordHistory(int keyframeInterval) {
+        history = new HistoryStore(this, keyframeInterval);
+        return history;
+    }
+
+    /**
+     * Stop recording; the store keeps the ticks recorded so far
+     */
+    public void stopRecordingHistory() {
+        history = null;
+    }
+
+    /**
+     * Test every reported tick for a steady state in Gini and average wealth
+     */
+    public void detectConvergence(ConvergenceDetector detector) {
+        this.convergenceDetector = detector;
+    }
+
+    public ConvergenceDetector getConvergenceDetector() {
+        return convergenceDetector;
+    }
+
+    /**
+     * Once converged, report only every n-th tick (0 keeps the current sampling)
+     */
+    public void setSparseSampling(int sampleEvery) {
+        this.sparseSampleEvery = sampleEvery;
+    }
+
+    /**
+     * Report only sampled ticks until endBatch(), for callers that drive 
+     * step() themselves over a batch of n ticks
+     */
+    public void beginBatch(int n, int sampleEvery) {
+        sampleInterval = sampleEvery > 0 ? sampleEvery : Integer.MAX_VALUE;
+        sampleUntil = ticks + n;
+    }
+
+    /**
+     * Report every tick again
+     */
+    public void endBatch() {
+        sampleInterval = 1;
+        sampleUntil = -1;
+    }
+
+    /**
+     * Whether the tick just completed is reported
+     */
+    public boolean isSampledTick() {
+        int interval = sampleInterval;
+        if (sparseSampleEvery > 0 && convergenceDetector != null && convergenceDetector.isConverged()) {
+            interval = Math.max(interval, sparseSampleEvery);
+        }
+        return interval == 1 || ticks % interval == 0 || ticks == sampleUntil;
+    }
+
+    /**
+     * Export and publish the statistics of the tick just completed, computing 
+     * them at most once and only if someone consumes them
+     */
+    protected void reportTick() {
+        if (!isSampledTick()) {
+            return;
+        }
+        PopulationStats stats = null;
+        if (convergenceDetector != null && !convergenceDetector.isConverged()) {
+            stats = getPopulationStats();
+            convergenceDetector.add(ticks, stats);
         }
-        
-        ticks++;
-        
-        // Export to CSV after each step
         if (csvExporter.isInitialized()) {
-            List<Integer> wealths = new ArrayList<>();
-            for (Turtle turtle : turtles) {
-                wealths.add(turtle.wealth);
+            if (stats == null) {
+                stats = getPopulationStats();
+            }
+            csvExporter.exportStats(ticks, stats);
+        }
+        if (snapshotPublisher != null && snapshotPublisher.wantsTick(ticks)) {
+            if (stats == null) {
+                stats = getPopulationStats();
+            }
+            int[] wealths = snapshotPublisher.includesWealths() ? getWealthColumn() : null;
+            snapshotPublisher.publish(new TickSnapshot(getClass().getSimpleName(), ticks, stats, wealths));
+        }
+    }
+
+    /**
+     * Publish tick snapshots to Flow subscribers from now on
+     * @param policy Throttle the simulation or drop snapshots for slow subscribers
+     * @param sampleEvery Publish every n-th tick
+     * @param includeWealths Whether snapshots carry every turtle's wealth
+     */
+    public SnapshotPublisher publishSnapshots(SnapshotPublisher.BackPressure policy, int sampleEvery,
+                                              boolean includeWealths) {
+        closeSnapshots();
+        snapshotPublisher = new SnapshotPublisher(policy, sampleEvery, Flow.defaultBufferSize(), includeWealths);
+        return snapshotPublisher;
+    }
+
+    /**
+     * Stop publishing snapshots and complete the subscribers
+     */
+    public void closeSnapshots() {
+        if (snapshotPublisher != null) {
+            snapshotPublisher.close();
+            snapshotPublisher = null;
+        }
+    }
+
+    /**
+     * Every turtle's wealth, in turtle order
+     */
+    protected int[] getWealthColumn() {
+        int[] wealths = new int[turtles.size()];
+        for (int i = 0; i < wealths.length; i++) {
+            wealths[i] = turtles.get(i).wealth;
+        }
+        return wealths;
+    }
+
+    /**
+     * Start the JFR tick event and reset the per-tick respawn counter
+     */
+    protected TickEvent beginTick() {
+        reorderTurtles();
+        respawnsThisTick = 0;
+        TickEvent tickEvent = new TickEvent();
+        tickEvent.begin();
+        return tickEvent;
+    }
+
+    /**
+     * Commit the JFR tick event and the respawn batch for the tick just completed
+     */
+    protected void endTick(TickEvent tickEvent) {
+        String model = getClass().getSimpleName();
+        if (tickEvent.shouldCommit()) {
+            tickEvent.model = model;
+            tickEvent.tick = ticks;
+            tickEvent.population = getPopulation();
+            tickEvent.commit();
+        }
+        if (respawnsThisTick > 0) {
+            RespawnEvent respawnEvent = new RespawnEvent();
+            if (respawnEvent.shouldCommit()) {
+                respawnEvent.model = model;
+                respawnEvent.tick = ticks;
+                respawnEvent.respawns = respawnsThisTick;
+                respawnEvent.commit();
             }
-            csvExporter.exportWealthData(ticks, wealths);
+        }
+    }
+
+    /**
+     * Record that a turtle died and was re-initialised during the current tick
+     */
+    public void recordRespawn() {
+        respawnsThisTick++;
+    }
+
+    /**
+     * Let all turtles decide their direction
+     */
+    protected void decideDirections() {
+        if (tiledStepper != null) {
+            tiledStepper.decide();
+            return;
+        }
+        for (Turtle turtle : processingOrder) {
+            turtle.decideDirection(this);
+        }
+    }
+
+    /**
+     * Let all turtles move, eat, age and possibly die
+     */
+    protected void moveEatAgeDie() {
+        if (tiledStepper != null) {
+            tiledStepper.moveEatAgeDie();
+            return;
+        }
+        for (Turtle turtle : processingOrder) {
+            turtle.moveEatAgeDie(this);
         }
     }
 
@@ -219,28 +807,53 @@ public class World {
      * Harvest grain following NetLogo's harvest logic
      */
     protected void harvest() {
+        if (tiledStepper != null) {
+            tiledStepper.harvest();
+            occupiedPatchesChanged();
+            return;
+        }
+        if (parallelHarvest != null) {
+            parallelHarvest.harvest(false);
+            occupiedPatchesChanged();
+            return;
+        }
         // First let all turtles harvest grain
-        for (Turtle turtle : turtles) {
+        for (Turtle turtle : processingOrder) {
             Patch patch = map[turtle.x][turtle.y];
             
-            // Count how many turtles are on this patch
-            int turtlesOnPatch = 0;
-            for (Turtle t : turtles) {
-                if (t.x == turtle.x && t.y == turtle.y) {
-                    turtlesOnPatch++;
-                }
-            }
-            
-            // Distribute grain equally
-            if (turtlesOnPatch > 0) {
-                int grainPerTurtle = patch.getGrainHere() / turtlesOnPatch;
-                turtle.wealth += grainPerTurtle;
-            }
+            // Distribute grain equally among the turtles on this patch
+            int turtlesOnPatch = occupancy[turtle.x * height + turtle.y];
+            int grainPerTurtle = patch.getGrainHere() / turtlesOnPatch;
+            turtle.wealth += grainPerTurtle;
         }
         
         // Then set grain to 0 on all patches with turtles
-        for (Turtle turtle : turtles) {
+        for (Turtle turtle : processingOrder) {
             map[turtle.x][turtle.y].setGrainHere(0);
+            patchChanged(turtle.x, turtle.y);
+        }
+    }
+
+    /**
+     * Tell the recording history, if any, that a patch may have changed this
+     * tick. Harvest and spreading call this; growth and spread wealth pickup
+     * only change patches below their max grain or holding spread wealth,
+     * which the history watches anyway.
+     */
+    protected final void patchChanged(int x, int y) {
+        if (history != null) {
+            history.patchChanged(x * height + y);
+        }
+    }
+
+    /**
+     * patchChanged for every turtle's patch, after a harvest on worker threads
+     */
+    protected final void occupiedPatchesChanged() {
+        if (history != null) {
+            for (Turtle turtle : turtles) {
+                history.patchChanged(turtle.x * height + turtle.y);
+            }
         }
     }
 
@@ -248,6 +861,16 @@ public class World {
      * Grow grain following NetLogo's grow-grain logic
      */
     protected void growGrain() {
+        if (tiledStepper != null) {
+            tiledStepper.growGrain();
+            return;
+        }
+        if (fertilePatches != null) {
+            for (int index : fertilePatches) {
+                map[index / height][index % height].growGrain(numGrainGrown);
+            }
+            return;
+        }
         for (int x = 0; x < width; x++) {
             for (int y = 0; y < height; y++) {
                 map[x][y].growGrain(numGrainGrown);
@@ -259,44 +882,26 @@ public class World {
      * Print statistics including wealth distribution and Gini coefficient
      */
     public void printStats() {
-        if (turtles.isEmpty()) {
+        int population = getPopulation();
+        if (population == 0) {
             System.out.println("=== World Status ===");
             System.out.println("Number of Turtles: 0");
             System.out.println("==================");
             return;
         }
 
-        // Calculate wealth statistics
-        List<Integer> wealths = new ArrayList<>();
-        int totalWealth = 0;
-        int minWealth = Integer.MAX_VALUE;
-        int maxWealth = Integer.MIN_VALUE;
-        
-        for (Turtle turtle : turtles) {
-            wealths.add(turtle.wealth);
-            totalWealth += turtle.wealth;
-            minWealth = Math.min(minWealth, turtle.wealth);
-            maxWealth = Math.max(maxWealth, turtle.wealth);
-        }
-        
-        double avgWealth = (double) totalWealth / turtles.size();
-        double gini = GiniCalculator.compute(wealths);
+        // Calculate wealth statistics in one pass
+        PopulationStats stats = getPopulationStats();
+        double avgWealth = stats.getAvgWealth();
+        int minWealth = stats.getMinWealth();
+        int maxWealth = stats.getMaxWealth();
+        double gini = stats.getGini();
         
-        // Calculate wealth class distribution (following NetLogo's recolor-turtles logic)
-        int[] wealthClasses = new int[3]; // 0: poor (red), 1: middle (green), 2: rich (blue)
-        
-        for (Turtle turtle : turtles) {
-            if (turtle.wealth <= maxWealth / 3) {
-                wealthClasses[0]++; // poor
-            } else if (turtle.wealth <= (maxWealth * 2 / 3)) {
-                wealthClasses[1]++; // middle
-            } else {
-                wealthClasses[2]++; // rich
-            }
-        }
+        // Wealth class distribution (following NetLogo's recolor-turtles logic)
+        int[] wealthClasses = {stats.getPoorCount(), stats.getMiddleCount(), stats.getRichCount()};
         
         System.out.println("=== World Status (Tick: " + ticks + ") ===");
-        System.out.println("Number of Turtles: " + turtles.size());
+        System.out.println("Number of Turtles: " + population);
         System.out.println("Average Wealth: " + String.format("%.2f", avgWealth));
         System.out.println("Minimum Wealth: " + minWealth);
         System.out.println("Maximum Wealth: " + maxWealth);
@@ -304,14 +909,17 @@ public class World {
         System.out.println("Wealth Distribution:");
         System.out.println("  Poor (≤" + (maxWealth/3) + "): " + wealthClasses[0] + 
                           " (" + String.format("%.1f", 100.0 * wealthClasses[0] 
-                          / turtles.size()) + "%)");
+                          / population) + "%)");
         System.out.println("  Middle (" + (maxWealth/3 + 1) + "-" + (maxWealth*2/3) + "): " 
                           + wealthClasses[1]  
                           + " (" + String.format("%.1f", 100.0 * wealthClasses[1] 
-                          / turtles.size()) + "%)");
+                          / population) + "%)");
         System.out.println("  Rich (≥" + (maxWealth*2/3 + 1) + "): " + wealthClasses[2] + 
                           " (" + String.format("%.1f", 100.0 * wealthClasses[2] 
-                          / turtles.size()) + "%)");
+                          / population) + "%)");
+        if (convergenceDetector != null && convergenceDetector.isConverged()) {
+            System.out.println("Converged at Tick: " + convergenceDetector.getConvergenceTick());
+        }
         
         // Analyze wealth by vision levels
         // analyzeWealthByVision();
@@ -411,6 +1019,13 @@ public class World {
         return map[newX][newY];
     }
 
+    /**
+     * Grain on the patch at the given distance in the given direction
+     */
+    public int getGrainAhead(int x, int y, Direction direction, int distance) {
+        return getPatchAhead(x, y, direction, distance).getGrainHere();
+    }
+
     /**
      * Get random patch location
      */
@@ -418,6 +1033,35 @@ public class World {
         return new int[]{random.nextInt(width), random.nextInt(height)};
     }
 
+    /**
+     * Random stream for a turtle's respawn, seeded by initialize(). Called once 
+     * at the start of each respawn; with per-agent streams it starts that 
+     * turtle's next stream, which getRandomPatchLocation(turtle) continues.
+     */
+    public Random getTurtleRandom(Turtle turtle) {
+        if (!perAgentStreams) {
+            return turtleRandom;
+        }
+        agentRandom.setSeed(StateHash.mix(StateHash.mix(streamSeed, turtle.id), turtle.respawns++));
+        return agentRandom;
+    }
+
+    /**
+     * Random patch location for a respawning turtle
+     */
+    public int[] getRandomPatchLocation(Turtle turtle) {
+        Random locationRandom = perAgentStreams ? agentRandom : random;
+        return new int[]{locationRandom.nextInt(width), locationRandom.nextInt(height)};
+    }
+
+    /**
+     * Leave wealth on a patch for the turtles harvesting it next
+     */
+    public void addSpreadWealth(int x, int y, int wealth) {
+        writablePatch(x, y).addSpreadWealth(wealth);
+        patchChanged(x, y);
+    }
+
     /**
      * Get patch at specified coordinates
      */
@@ -425,6 +1069,156 @@ public class World {
         return map[x][y];
     }
 
+    /**
+     * Turtles per independently sketched shard
+     */
+    public static final int STATS_SHARD_SIZE = 1 << 20;
+
+    /**
+     * Gather statistics in a WealthSketch of the given size instead of
+     * exactly (0 for exact statistics again), so that Gini and class counts
+     * cost a few thousand retained values per tick whatever the population.
+     * Shards of STATS_SHARD_SIZE turtles are sketched on the given number of
+     * threads and merged in order, so estimates do not depend on the thread
+     * count. The worker threads are kept until this is called again (1
+     * thread stops them) or the world is closed.
+     */
+    public void setApproximateStats(int sketchSize, int threads) {
+        stopStatsWorkers();
+        this.statsSketchSize = sketchSize;
+        this.statsThreads = Math.max(1, threads);
+    }
+
+    public boolean isApproximateStats() {
+        return statsSketchSize > 0;
+    }
+
+    /**
+     * Stop the threads sketching statistics; the next sketch starts new ones
+     */
+    private void stopStatsWorkers() {
+        if (statsWorkers != null) {
+            statsWorkers.shutdown();
+            statsWorkers = null;
+        }
+    }
+
+    /**
+     * Sketch of the current population's wealth, built shard by shard on the
+     * threads of setApproximateStats and merged. Sketches of replicate runs
+     * merge the same way.
+     */
+    public WealthSketch sketchWealth(int k) {
+        int population = getPopulation();
+        int shards = (population + STATS_SHARD_SIZE - 1) / STATS_SHARD_SIZE;
+        if (statsWorkers == null && statsThreads > 1) {
+            statsWorkers = Bands.pool(statsThreads, "stats-worker");
+        }
+        WealthSketch[] sketches = new WealthSketch[shards];
+        Bands.run(statsWorkers, statsThreads, shards, (from, to) -> {
+            for (int shard = from; shard < to; shard++) {
+                sketches[shard] = new WealthSketch(k, shard);
+                addWealths(sketches[shard], shard * STATS_SHARD_SIZE,
+                           Math.min(population, (shard + 1) * STATS_SHARD_SIZE));
+            }
+        });
+        WealthSketch sketch = new WealthSketch(k);
+        for (WealthSketch shard : sketches) {
+            sketch.merge(shard);
+        }
+        return sketch;
+    }
+
+    /**
+     * Add the wealth of the turtles [from, to) to a sketch
+     */
+    protected void addWealths(WealthSketch sketch, int from, int to) {
+        for (int i = from; i < to; i++) {
+            sketch.add(turtles.get(i).wealth);
+        }
+    }
+
+    /**
+     * Wealth statistics of the current population, gathered in one pass, 
+     * or estimated from a sketch with setApproximateStats
+     */
+    public PopulationStats getPopulationStats() {
+        if (statsSketchSize > 0) {
+            return PopulationStats.of(sketchWealth(statsSketchSize));
+        }
+        PopulationStats stats = new PopulationStats();
+        for (Turtle turtle : turtles) {
+            stats.add(turtle.wealth);
+        }
+        return stats;
+    }
+
+    /**
+     * Names of the fields returned by getAgentState, in order
+     */
+    public static final String[] AGENT_FIELDS = 
+        {"x", "y", "age", "wealth", "metabolism", "vision", "lifeExpectancy"};
+
+    /**
+     * State of one turtle as {x, y, age, wealth, metabolism, vision, lifeExpectancy}
+     */
+    public int[] getAgentState(int index) {
+        Turtle turtle = turtles.get(index);
+        return new int[]{turtle.x, turtle.y, turtle.age, turtle.wealth, 
+                         turtle.metabolism, turtle.vision, turtle.lifeExpectancy};
+    }
+
+    /**
+     * Hash of the current agent and patch state, for comparing engines
+     */
+    public long stateHash() {
+        return StateHash.mix(hashAgents(StateHash.start()), hashLandscape());
+    }
+
+    /**
+     * Sum of every patch's hash
+     */
+    protected long hashLandscape() {
+        long hash = 0;
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                hash += StateHash.patch((long) x * height + y, map[x][y].getGrainHere(), 
+                                        map[x][y].getSpreadWealth());
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Fold every agent's state into the hash, in turtle order
+     */
+    protected long hashAgents(long hash) {
+        for (Turtle turtle : turtles) {
+            hash = StateHash.agent(hash, turtle.x, turtle.y, turtle.age, turtle.wealth,
+                                   turtle.metabolism, turtle.vision, turtle.lifeExpectancy);
+        }
+        return hash;
+    }
+
+    public int getTicks() {
+        return ticks;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Number of turtles in the world
+     */
+    public int getPopulation() {
+        return turtles.size();
+    }
+
     /**
      * Get list of all turtles
      */
@@ -447,4 +1241,7 @@ public class World {
     public int getMaxVision() {
         return maxVision;
     }
+    public int getPercentBestLand() {
+        return percentBestLand;
+    }
 }
\ No newline at end of file
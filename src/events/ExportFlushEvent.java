@@ -0,0 +1,22 @@
+package events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event spanning one CSV row write and flush
+ */
+@Name("wealthworld.ExportFlush")
+@Label("Export Flush")
+@Category({"WealthWorld", "Export"})
+@Description("A CSV exporter writing and flushing one row")
+public class ExportFlushEvent extends Event {
+    @Label("File")
+    public String file;
+
+    @Label("Round")
+    public int round;
+}
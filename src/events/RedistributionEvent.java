@@ -0,0 +1,31 @@
+package events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event emitted by each tax redistribution round
+ */
+@Name("wealthworld.Redistribution")
+@Label("Tax Redistribution")
+@Category({"WealthWorld", "Simulation"})
+@Description("Tax collected from rich turtles and paid out to poor turtles")
+public class RedistributionEvent extends Event {
+    @Label("Model")
+    public String model;
+
+    @Label("Tick")
+    public int tick;
+
+    @Label("Tax Collected")
+    public int taxCollected;
+
+    @Label("Rich Count")
+    public int richCount;
+
+    @Label("Poor Count")
+    public int poorCount;
+}
@@ -0,0 +1,25 @@
+package events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event summarising the turtles that died and respawned during one tick
+ */
+@Name("wealthworld.RespawnBatch")
+@Label("Respawn Batch")
+@Category({"WealthWorld", "Simulation"})
+@Description("Number of turtles re-initialised by set-initial-turtle-vars in one tick")
+public class RespawnEvent extends Event {
+    @Label("Model")
+    public String model;
+
+    @Label("Tick")
+    public int tick;
+
+    @Label("Respawns")
+    public int respawns;
+}
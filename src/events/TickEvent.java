@@ -0,0 +1,25 @@
+package events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event spanning one simulation tick (begin() at tick start, commit() at tick end)
+ */
+@Name("wealthworld.Tick")
+@Label("Simulation Tick")
+@Category({"WealthWorld", "Simulation"})
+@Description("One World.step() from decide to export")
+public class TickEvent extends Event {
+    @Label("Model")
+    public String model;
+
+    @Label("Tick")
+    public int tick;
+
+    @Label("Population")
+    public int population;
+}
@@ -14,12 +14,16 @@ public class BaselineMain {
         
         world.initialize(42);
 
+        // -Dsample.every=n exports only every n-th tick
+        int sampleEvery = Integer.getInteger("sample.every", 1);
+        world.beginBatch(300, sampleEvery);
         for (int i = 1; i <= 300; i++) {
             world.step();
             if (i % 10 == 0) {
                 world.printStats();
             }
         }
+        world.endBatch();
         
         // Close CSV export
         world.closeCsvExport();
@@ -1,7 +1,9 @@
 package models;
 
+import monitor.MetricsServer;
+
 public class ComparisonMain {
-    public static void main(String[] args) {
+    public static void main(String[] args) throws Exception {
         // Model parameter settings (same as original model)
         int width = 50;
         int height = 50;
@@ -24,6 +26,14 @@ public class ComparisonMain {
         // Initialize CSV export
         comparator.initializeCsvExport("data/output/model_comparison_results.csv");
         
+        // Optional live telemetry: -Dmetrics.port=8080
+        MetricsServer metricsServer = null;
+        String metricsPort = System.getProperty("metrics.port");
+        if (metricsPort != null) {
+            metricsServer = new MetricsServer(Integer.parseInt(metricsPort));
+            comparator.enableMetrics(metricsServer, 1);
+        }
+        
         // Initialize (use same random seed for fair comparison)
         int seed = 42;
         comparator.initialize(seed);
@@ -48,6 +58,9 @@ public class ComparisonMain {
         
         // Close CSV export
         comparator.closeCsvExport();
+        if (metricsServer != null) {
+            metricsServer.close();
+        }
         
         System.out.println("Simulation completed. Results exported to data/output/model_comparison_results.csv");
     }
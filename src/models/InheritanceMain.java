@@ -1,11 +1,11 @@
 package models;
 
+import core.Terrain;
 import core.World;
 import java.util.ArrayList;
 import java.util.List;
-import utils.GiniCalculator;
 import utils.ComparisonCsvExporter;
-import core.Turtle;
+import utils.PopulationStats;
 
 public class InheritanceMain {
     private static List<Double> baselineGini = new ArrayList<>();
@@ -28,7 +28,10 @@ public class InheritanceMain {
         1, 83, 10, 
         1, 4);
         
-        // Use same random seed to ensure fair comparison
+        // Use same random seed to ensure fair comparison, generating the landscape once
+        Terrain terrain = Terrain.generate(50, 50, 10, 42);
+        inheritanceWorld.setTerrain(terrain);
+        baselineWorld.setTerrain(terrain);
         inheritanceWorld.initialize(42);
         baselineWorld.initialize(42);
         
@@ -60,36 +63,26 @@ public class InheritanceMain {
      */
     private static void collectStatistics(int step, InheritanceWorld inheritanceWorld, World baselineWorld) {
         // Inheritance model statistics
-        if (!inheritanceWorld.getTurtles().isEmpty()) {
-            List<Integer> inheritanceWealths = new ArrayList<>();
-            int inheritanceTotal = 0;
-            for (Turtle turtle : inheritanceWorld.getTurtles()) {
-                inheritanceWealths.add(turtle.wealth);
-                inheritanceTotal += turtle.wealth;
-            }
-            inheritanceGini.add(GiniCalculator.compute(inheritanceWealths));
-            inheritanceAvgWealth.add((double) inheritanceTotal / inheritanceWealths.size());
+        PopulationStats inheritanceStats = inheritanceWorld.getPopulationStats();
+        if (inheritanceStats.getCount() > 0) {
+            inheritanceGini.add(inheritanceStats.getGini());
+            inheritanceAvgWealth.add(inheritanceStats.getAvgWealth());
             
             // Export to CSV
             if (csvExporter.isInitialized()) {
-                csvExporter.exportModelData(step, "Inheritance", inheritanceWorld.getTurtles().size(), inheritanceWealths);
+                csvExporter.exportModelStats(step, "Inheritance", inheritanceWorld.getTurtles().size(), inheritanceStats);
             }
         }
         
         // Baseline model statistics
-        if (!baselineWorld.getTurtles().isEmpty()) {
-            List<Integer> baselineWealths = new ArrayList<>();
-            int baselineTotal = 0;
-            for (Turtle turtle : baselineWorld.getTurtles()) {
-                baselineWealths.add(turtle.wealth);
-                baselineTotal += turtle.wealth;
-            }
-            baselineGini.add(GiniCalculator.compute(baselineWealths));
-            baselineAvgWealth.add((double) baselineTotal / baselineWealths.size());
+        PopulationStats baselineStats = baselineWorld.getPopulationStats();
+        if (baselineStats.getCount() > 0) {
+            baselineGini.add(baselineStats.getGini());
+            baselineAvgWealth.add(baselineStats.getAvgWealth());
             
             // Export to CSV
             if (csvExporter.isInitialized()) {
-                csvExporter.exportModelData(step, "Baseline", baselineWorld.getTurtles().size(), baselineWealths);
+                csvExporter.exportModelStats(step, "Baseline", baselineWorld.getTurtles().size(), baselineStats);
             }
         }
     }
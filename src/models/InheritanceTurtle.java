@@ -10,9 +10,6 @@ import java.util.Random;
  */
 public class InheritanceTurtle extends Turtle {
     
-    // Static random number generator shared across all instances
-    protected static final Random random = new Random();
-    
     /**
      * Constructor for InheritanceTurtle
      * @param metabolism - the turtle's metabolism rate
@@ -30,6 +27,9 @@ public class InheritanceTurtle extends Turtle {
      */
     @Override
     public void setInitialTurtleVars(World world) {
+        // Respawn draws come from the world's own stream so runs are reproducible
+        Random random = world.getTurtleRandom(this);
+        
         // Randomly set life expectancy within the world's defined range
         this.lifeExpectancy = world.getMinLifeExpectancy() + 
                              random.nextInt(world.getMaxLifeExpectancy() 
@@ -54,8 +54,7 @@ public class InheritanceTurtle extends Turtle {
         this.age = random.nextInt(this.lifeExpectancy);
         
         // Place turtle at a random location in the world
-        int[] location = world.getRandomPatchLocation();
-        this.x = location[0];
-        this.y = location[1];
+        int[] location = world.getRandomPatchLocation(this);
+        placeAt(world, location[0], location[1]);
     }
 }
@@ -1,5 +1,6 @@
 package models;
 
+import core.Turtle;
 import core.World;
 
 public class InheritanceWorld extends World{
@@ -9,31 +10,11 @@ public class InheritanceWorld extends World{
         super(width, height, maxPeople, maxVision, maxMetabolism, minLifeExpectancy, maxLifeExpectancy, percentBestLand, grainGrowthInterval, numGrainGrown);
     }
 
-/**
-     * Setup turtles using InheritanceTurtle instead of regular Turtle
+    /**
+     * Create turtles as InheritanceTurtle instead of regular Turtle
      */
     @Override
-    protected void setupTurtles() {
-        for (int i = 0; i < maxPeople; i++) {
-            // Set initial turtle variables
-            int metabolism = 1 + random.nextInt(maxMetabolism);
-            int vision = 1 + random.nextInt(maxVision);
-            int lifeExpectancy = minLifeExpectancy + 
-                               random.nextInt(maxLifeExpectancy - minLifeExpectancy + 1);
-            
-            InheritanceTurtle turtle = new InheritanceTurtle(metabolism, vision, lifeExpectancy);
-            
-            // Randomly place on a patch
-            turtle.x = random.nextInt(width);
-            turtle.y = random.nextInt(height);
-            
-            // Set initial wealth: metabolism + random 0-49
-            turtle.wealth = metabolism + random.nextInt(50);
-            
-            // Set random age
-            turtle.age = random.nextInt(lifeExpectancy);
-            
-            turtles.add(turtle);
-        }
+    protected Turtle newTurtle(int metabolism, int vision, int lifeExpectancy) {
+        return new InheritanceTurtle(metabolism, vision, lifeExpectancy);
     }
 }
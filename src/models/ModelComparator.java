@@ -2,9 +2,10 @@ package models;
 
 import java.util.ArrayList;
 import java.util.List;
-import core.Turtle;
-import utils.GiniCalculator;
+import monitor.MetricsServer;
 import utils.ComparisonCsvExporter;
+import utils.PopulationStats;
+import core.Terrain;
 import core.World;
 
 public class ModelComparator {
@@ -67,10 +68,26 @@ public class ModelComparator {
         csvExporter.close();
     }
     
+    /**
+     * Stream live telemetry of all three models to a metrics server
+     */
+    public void enableMetrics(MetricsServer server, int sampleEvery) {
+        server.watch("Baseline", baselineWorld, sampleEvery);
+        server.watch("Tax", taxWorld, sampleEvery);
+        server.watch("Spreading", spreadingWorld, sampleEvery);
+    }
+    
     /**
      * Initialize all models using the same random seed for fair comparison
      */
     public void initialize(int seed) {
+        // The three worlds share one landscape instead of generating it three times
+        Terrain terrain = Terrain.generate(baselineWorld.getWidth(), baselineWorld.getHeight(),
+                                           baselineWorld.getPercentBestLand(), seed);
+        baselineWorld.setTerrain(terrain);
+        taxWorld.setTerrain(terrain);
+        spreadingWorld.setTerrain(terrain);
+        
         baselineWorld.initialize(seed);
         taxWorld.initialize(seed);
         spreadingWorld.initialize(seed);
@@ -90,12 +107,10 @@ public class ModelComparator {
         
         for (int step = 1; step <= steps; step++) {
             // Run one step for each model
-            baselineWorld.step();
-            taxWorld.step();
-            spreadingWorld.step();
+            stepModels();
             
             // Collect statistics
-            collectStatistics(step);
+            recordStep(step);
             
             // Report periodically
             if (step % reportInterval == 0) {
@@ -108,57 +123,60 @@ public class ModelComparator {
     }
     
     /**
-     * Collect statistics for current step
+     * Run one step for each model
+     */
+    public void stepModels() {
+        baselineWorld.step();
+        taxWorld.step();
+        spreadingWorld.step();
+    }
+    
+    /**
+     * Run n steps of every model, collecting and exporting statistics only on 
+     * every sampleEvery-th step and on the last one (0 samples only the last). 
+     * The models evolve exactly as with n calls of stepModels().
      */
-    private void collectStatistics(int step) {
-        // Baseline model statistics
-        List<Integer> baselineWealths = new ArrayList<>();
-        int baselineTotal = 0;
-        for (Turtle turtle : baselineWorld.getTurtles()) {
-            baselineWealths.add(turtle.wealth);
-            baselineTotal += turtle.wealth;
+    public void advance(int n, int sampleEvery) {
+        World[] worlds = {baselineWorld, taxWorld, spreadingWorld};
+        for (World world : worlds) {
+            world.beginBatch(n, sampleEvery);
         }
-        if (!baselineWealths.isEmpty()) {
-            baselineGini.add(GiniCalculator.compute(baselineWealths));
-            baselineAvgWealth.add((double) baselineTotal / baselineWealths.size());
-            
-            // Export to CSV
-            if (csvExporter.isInitialized()) {
-                csvExporter.exportModelData(step, "Baseline", baselineWorld.getTurtles().size(), baselineWealths);
+        try {
+            for (int i = 0; i < n; i++) {
+                stepModels();
+                if (baselineWorld.isSampledTick()) {
+                    recordStep(baselineWorld.getTicks());
+                }
             }
-        }
-        
-        // Tax model statistics
-        List<Integer> taxWealths = new ArrayList<>();
-        int taxTotal = 0;
-        for (Turtle turtle : taxWorld.getTurtles()) {
-            taxWealths.add(turtle.wealth);
-            taxTotal += turtle.wealth;
-        }
-        if (!taxWealths.isEmpty()) {
-            taxGini.add(GiniCalculator.compute(taxWealths));
-            taxAvgWealth.add((double) taxTotal / taxWealths.size());
-            
-            // Export to CSV
-            if (csvExporter.isInitialized()) {
-                csvExporter.exportModelData(step, "Tax", taxWorld.getTurtles().size(), taxWealths);
+        } finally {
+            for (World world : worlds) {
+                world.endBatch();
             }
         }
-        
-        // Spreading model statistics
-        List<Integer> spreadingWealths = new ArrayList<>();
-        int spreadingTotal = 0;
-        for (Turtle turtle : spreadingWorld.getTurtles()) {
-            spreadingWealths.add(turtle.wealth);
-            spreadingTotal += turtle.wealth;
-        }
-        if (!spreadingWealths.isEmpty()) {
-            spreadingGini.add(GiniCalculator.compute(spreadingWealths));
-            spreadingAvgWealth.add((double) spreadingTotal / spreadingWealths.size());
+    }
+    
+    /**
+     * Collect and export statistics for the step just run
+     */
+    public void recordStep(int step) {
+        collectModelStatistics(step, "Baseline", baselineWorld, baselineGini, baselineAvgWealth);
+        collectModelStatistics(step, "Tax", taxWorld, taxGini, taxAvgWealth);
+        collectModelStatistics(step, "Spreading", spreadingWorld, spreadingGini, spreadingAvgWealth);
+    }
+    
+    /**
+     * Collect and export one model's statistics from a single pass over its turtles
+     */
+    private void collectModelStatistics(int step, String modelType, World world,
+                                        List<Double> giniSeries, List<Double> avgWealthSeries) {
+        PopulationStats stats = world.getPopulationStats();
+        if (stats.getCount() > 0) {
+            giniSeries.add(stats.getGini());
+            avgWealthSeries.add(stats.getAvgWealth());
             
             // Export to CSV
             if (csvExporter.isInitialized()) {
-                csvExporter.exportModelData(step, "Spreading", spreadingWorld.getTurtles().size(), spreadingWealths);
+                csvExporter.exportModelStats(step, modelType, world.getTurtles().size(), stats);
             }
         }
     }
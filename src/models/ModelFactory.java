@@ -0,0 +1,52 @@
+package models;
+
+import core.World;
+
+/**
+ * Creates a world for a model name so that jobs can be described as plain data
+ */
+public class ModelFactory {
+
+    public static final String[] MODEL_TYPES = {"Baseline", "Inheritance", "Tax", "Spreading"};
+
+    /**
+     * Version of the model code, part of every cached result's key. Bump it 
+     * whenever a change alters what any model computes for a given seed.
+     */
+    public static final String MODEL_VERSION = "1";
+
+    /**
+     * Create an uninitialised world of the given model type
+     * @param modelType One of "Baseline", "Inheritance", "Tax", "Spreading"
+     * @param params width, height, maxPeople, maxVision, maxMetabolism, minLifeExpectancy,
+     *               maxLifeExpectancy, percentBestLand, grainGrowthInterval, numGrainGrown
+     */
+    public static World create(String modelType, int[] params) {
+        if (params.length != 10) {
+            throw new IllegalArgumentException("Expected 10 world parameters, got " + params.length);
+        }
+        switch (modelType) {
+            case "Baseline":
+                return new World(params[0], params[1], params[2], params[3], params[4],
+                                 params[5], params[6], params[7], params[8], params[9]);
+            case "Inheritance":
+                return new InheritanceWorld(params[0], params[1], params[2], params[3], params[4],
+                                            params[5], params[6], params[7], params[8], params[9]);
+            case "Tax":
+                return new TaxRedistributionWorld(params[0], params[1], params[2], params[3], params[4],
+                                                  params[5], params[6], params[7], params[8], params[9]);
+            case "Spreading":
+                return new WealthSpreadingWorld(params[0], params[1], params[2], params[3], params[4],
+                                                params[5], params[6], params[7], params[8], params[9]);
+            default:
+                throw new IllegalArgumentException("Unknown model type: " + modelType);
+        }
+    }
+
+    /**
+     * Default parameters of the original NetLogo model (50x50, 250 turtles)
+     */
+    public static int[] defaultParams() {
+        return new int[]{50, 50, 250, 5, 15, 1, 83, 10, 1, 4};
+    }
+}
@@ -2,8 +2,10 @@ package models;
 
 import java.util.ArrayList;
 import java.util.List;
+import core.TickPipeline;
 import core.World;
 import core.Turtle;
+import events.RedistributionEvent;
 
 public class TaxRedistributionWorld extends World {
     private int taxInterval; // Tax interval (max_age/2 rounds)
@@ -17,68 +19,24 @@ public class TaxRedistributionWorld extends World {
         this.taxInterval = maxLifeExpectancy / 8; // Tax every max_age/2 rounds
     }
     /**
-     * Setup turtles using InheritanceTurtle instead of regular Turtle
+     * Create turtles as InheritanceTurtle instead of regular Turtle
      */
     @Override
-    protected void setupTurtles() {
-        for (int i = 0; i < maxPeople; i++) {
-            // Set initial turtle variables
-            int metabolism = 1 + random.nextInt(maxMetabolism);
-            int vision = 1 + random.nextInt(maxVision);
-            int lifeExpectancy = minLifeExpectancy + 
-                               random.nextInt(maxLifeExpectancy - minLifeExpectancy + 1);
-            
-            InheritanceTurtle turtle = new InheritanceTurtle(metabolism, vision, lifeExpectancy);
-            
-            // Randomly place on a patch
-            turtle.x = random.nextInt(width);
-            turtle.y = random.nextInt(height);
-            
-            // Set initial wealth: metabolism + random 0-49
-            turtle.wealth = metabolism + random.nextInt(50);
-            
-            // Set random age
-            turtle.age = random.nextInt(lifeExpectancy);
-            
-            turtles.add(turtle);
-        }
+    protected Turtle newTurtle(int metabolism, int vision, int lifeExpectancy) {
+        return new InheritanceTurtle(metabolism, vision, lifeExpectancy);
     }
     
+    /**
+     * Tax redistribution (every taxInterval rounds) after grain has grown
+     */
     @Override
-    public void step() {
-        // 1. All turtles decide their direction
-        for (Turtle turtle : turtles) {
-            turtle.decideDirection(this);
-        }
-        
-        // 2. Harvest grain (before moving)
-        harvest();
-        
-        // 3. All turtles move, eat grain, age, and possibly die
-        for (Turtle turtle : turtles) {
-            turtle.moveEatAgeDie(this);
-        }
-        
-        // 4. Grow grain at specified intervals
-        if (ticks % grainGrowthInterval == 0) {
-            growGrain();
-        }
-        
-        // 5. Tax redistribution (every taxInterval rounds)
-        if (ticks % taxInterval == 0 && ticks > 0) {
-            redistributeWealth();
-        }
-        
-        ticks++;
-        
-        // Export to CSV
-        if (csvExporter.isInitialized()) {
-            List<Integer> wealths = new ArrayList<>();
-            for (Turtle turtle : turtles) {
-                wealths.add(turtle.wealth);
+    protected void configurePipeline(TickPipeline pipeline) {
+        super.configurePipeline(pipeline);
+        pipeline.addAfter("grow", "tax", () -> {
+            if (ticks % taxInterval == 0 && ticks > 0) {
+                redistributeWealth();
             }
-            csvExporter.exportWealthData(ticks, wealths);
-        }
+        });
     }
     
     /**
@@ -125,9 +83,15 @@ public class TaxRedistributionWorld extends World {
             }
         }
         
-        System.out.println("Tax Redistribution - Tick " + ticks + ": Collected " + totalTax + 
-                          " wealth from " + richTurtles.size() + " rich turtles, distributed to " + 
-                          poorTurtles.size() + " poor turtles");
+        RedistributionEvent event = new RedistributionEvent();
+        if (event.shouldCommit()) {
+            event.model = getClass().getSimpleName();
+            event.tick = ticks;
+            event.taxCollected = totalTax;
+            event.richCount = richTurtles.size();
+            event.poorCount = poorTurtles.size();
+            event.commit();
+        }
     }
     
     @Override
@@ -0,0 +1,184 @@
+package models;
+
+import core.EngineVerifier;
+import core.HistoryStore;
+import core.MappedWorld;
+import core.OffHeapWorld;
+import core.TiledStepper;
+import core.World;
+import utils.PopulationStats;
+import utils.WealthSketch;
+
+/**
+ * Checks every alternative engine against the sequential World.step() oracle
+ */
+public class VerifyMain {
+    // Largest accepted absolute error of a sketched Gini or top decile share
+    private static final double SKETCH_TOLERANCE = 0.01;
+
+    public static void main(String[] args) {
+        int seed = args.length > 0 ? Integer.parseInt(args[0]) : 42;
+        int ticks = args.length > 1 ? Integer.parseInt(args[1]) : 300;
+        int[] params = ModelFactory.defaultParams();
+        int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+        boolean allIdentical = true;
+
+        System.out.println("=== Engine Verification (seed " + seed + ", " + ticks + " ticks) ===");
+        for (String modelType : ModelFactory.MODEL_TYPES) {
+            World reference = ModelFactory.create(modelType, params);
+            World tiled = ModelFactory.create(modelType, params);
+            tiled.enableTiledStepping(threads, TiledStepper.Orientation.VERTICAL);
+            reference.initialize(seed);
+            tiled.initialize(seed);
+            EngineVerifier.Report report = EngineVerifier.verify(reference, tiled, ticks);
+            tiled.disableTiledStepping();
+            System.out.println(modelType + " tiled (" + threads + " tiles): " + report);
+            allIdentical &= report.isIdentical();
+        }
+
+        for (String modelType : new String[]{"Baseline", "Tax"}) {
+            World reference = ModelFactory.create(modelType, params);
+            World sorted = ModelFactory.create(modelType, params);
+            reference.setPerAgentRandomStreams(true);
+            sorted.setSpatialSortInterval(10);
+            reference.initialize(seed);
+            sorted.initialize(seed);
+            EngineVerifier.Report report = EngineVerifier.verify(reference, sorted, ticks);
+            System.out.println(modelType + " spatially sorted: " + report);
+            allIdentical &= report.isIdentical();
+        }
+
+        for (String modelType : ModelFactory.MODEL_TYPES) {
+            World reference = ModelFactory.create(modelType, params);
+            World harvested = ModelFactory.create(modelType, params);
+            harvested.setHarvestThreads(threads + 1);
+            reference.initialize(seed);
+            harvested.initialize(seed);
+            EngineVerifier.Report report = EngineVerifier.verify(reference, harvested, ticks);
+            harvested.setHarvestThreads(1);
+            System.out.println(modelType + " parallel harvest (" + (threads + 1) + " threads): " + report);
+            allIdentical &= report.isIdentical();
+        }
+
+        for (String modelType : ModelFactory.MODEL_TYPES) {
+            World reference = ModelFactory.create(modelType, params);
+            World sparse = ModelFactory.create(modelType, params);
+            sparse.setSparseLandscape(true);
+            reference.initialize(seed);
+            sparse.initialize(seed);
+            EngineVerifier.Report report = EngineVerifier.verify(reference, sparse, ticks);
+            System.out.println(modelType + " sparse landscape: " + report);
+            allIdentical &= report.isIdentical();
+        }
+
+        // Forks taken mid-run must continue exactly like the world they came from
+        for (String modelType : ModelFactory.MODEL_TYPES) {
+            World original = ModelFactory.create(modelType, params);
+            original.initialize(seed);
+            original.advance(ticks / 2, 0);
+            World fork = original.fork();
+            EngineVerifier.Report report = EngineVerifier.verify(original, fork, ticks - ticks / 2);
+            System.out.println(modelType + " forked at tick " + ticks / 2 + ": " + report);
+            allIdentical &= report.isIdentical();
+        }
+
+        // Every recorded tick must come back from its keyframe and deltas
+        for (String modelType : ModelFactory.MODEL_TYPES) {
+            World original = ModelFactory.create(modelType, params);
+            original.setSparseLandscape(true);
+            original.initialize(seed);
+            HistoryStore history = original.recordHistory(32);
+            long[] hashes = new long[ticks + 1];
+            hashes[0] = original.stateHash();
+            for (int tick = 1; tick <= ticks; tick++) {
+                original.step();
+                hashes[tick] = original.stateHash();
+            }
+            int rebuilt = 0;
+            for (int tick = 0; tick <= ticks; tick++) {
+                if (history.reconstruct(tick).stateHash() == hashes[tick]) {
+                    rebuilt++;
+                }
+            }
+            World resumed = history.resume(ticks / 2 + 7);
+            boolean resumes = resumed.stateHash() == hashes[ticks / 2 + 7];
+            resumed.advance(ticks - resumed.getTicks(), 0);
+            resumes &= resumed.stateHash() == hashes[ticks];
+            System.out.println(modelType + " history (keyframes every 32 ticks, " + history.getDeltaBytes()
+                               + " delta bytes): " + rebuilt + " of " + (ticks + 1) + " ticks rebuilt"
+                               + (resumes ? ", resumed run matches" : ", resumed run differs"));
+            allIdentical &= rebuilt == ticks + 1 && resumes;
+        }
+
+        // Sketched statistics at the default size, on a population large enough to compact, must be
+        // within a fixed tolerance of the exact ones and within their own error bounds
+        int[] largeParams = params.clone();
+        largeParams[0] *= 4;
+        largeParams[1] *= 4;
+        largeParams[2] *= 16;
+        for (String modelType : ModelFactory.MODEL_TYPES) {
+            World world = ModelFactory.create(modelType, largeParams);
+            world.initialize(seed);
+            world.advance(ticks, 0);
+            PopulationStats exact = world.getPopulationStats();
+            int[] wealths = world.getTurtles().stream().mapToInt(turtle -> turtle.wealth).sorted().toArray();
+            long topDecile = 0;
+            for (int i = wealths.length - wealths.length / 10; i < wealths.length; i++) {
+                topDecile += wealths[i];
+            }
+            world.setApproximateStats(WealthSketch.DEFAULT_K, threads);
+            WealthSketch sketch = world.getPopulationStats().getSketch();
+            world.close();
+            double giniError = Math.abs(sketch.getGini() - exact.getGini());
+            double shareError = Math.abs(sketch.getTopDecileShare() - (double) topDecile / exact.getTotalWealth());
+            boolean withinTolerance = !sketch.isExact()
+                                      && giniError <= SKETCH_TOLERANCE && giniError <= sketch.getGiniErrorBound()
+                                      && shareError <= SKETCH_TOLERANCE
+                                      && shareError <= sketch.getTopDecileShareErrorBound();
+            System.out.printf("%s sketched statistics (%d turtles, %d values kept): Gini off by %.4f (bound %.4f), "
+                              + "top decile share off by %.4f (bound %.4f)%s%n", modelType, wealths.length,
+                              sketch.getRetained(), giniError, sketch.getGiniErrorBound(), shareError,
+                              sketch.getTopDecileShareErrorBound(), withinTolerance ? "" : " - out of tolerance");
+            allIdentical &= withinTolerance;
+        }
+
+        World reference = ModelFactory.create("Baseline", params);
+        reference.initialize(seed);
+        try (OffHeapWorld offHeap = new OffHeapWorld(params[0], params[1], params[2], params[3], params[4],
+                                                     params[5], params[6], params[7], params[8], params[9])) {
+            offHeap.initialize(seed);
+            EngineVerifier.Report report = EngineVerifier.verify(reference, offHeap, ticks);
+            System.out.println("Baseline off-heap: " + report);
+            allIdentical &= report.isIdentical();
+        }
+
+        reference = ModelFactory.create("Baseline", params);
+        reference.initialize(seed);
+        try (MappedWorld mapped = new MappedWorld(params[0], params[1], params[2], params[3], params[4],
+                                                  params[5], params[6], params[7], params[8], params[9])) {
+            mapped.initialize(seed);
+            EngineVerifier.Report report = EngineVerifier.verify(reference, mapped, ticks);
+            System.out.println("Baseline mapped landscape: " + report);
+            allIdentical &= report.isIdentical();
+        }
+
+        // Counter-based terrain must not depend on the thread count or the landscape backend
+        reference = ModelFactory.create("Baseline", params);
+        reference.setCounterBasedTerrain(true);
+        reference.initialize(seed);
+        try (MappedWorld mapped = new MappedWorld(params[0], params[1], params[2], params[3], params[4],
+                                                  params[5], params[6], params[7], params[8], params[9])) {
+            mapped.setCounterBasedTerrain(true);
+            mapped.setTerrainThreads(3);
+            mapped.initialize(seed);
+            EngineVerifier.Report report = EngineVerifier.verify(reference, mapped, ticks);
+            System.out.println("Baseline counter-based terrain, 3 threads mapped: " + report);
+            allIdentical &= report.isIdentical();
+        }
+
+        System.out.println(allIdentical ? "All engines match the reference" : "Engine mismatch detected");
+        if (!allIdentical) {
+            System.exit(1);
+        }
+    }
+}
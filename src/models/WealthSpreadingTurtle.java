@@ -2,11 +2,9 @@ package models;
 
 import core.Turtle;
 import core.World;
-import core.Patch;
 import java.util.Random;
 public class WealthSpreadingTurtle extends Turtle {
     private static final double WEALTH_SPREADING_RATE = 0.2; // 20% wealth spreading rate
-    protected static final Random random = new Random();
     private int wealthSpreadingCounter = 0; // Counter for wealth spreading cycles
 
     public WealthSpreadingTurtle(int metabolism, int vision, int lifeExpectancy) {
@@ -20,6 +18,9 @@ public class WealthSpreadingTurtle extends Turtle {
      */
     @Override
     public void setInitialTurtleVars(World world) {
+        // Respawn draws come from the world's own stream so runs are reproducible
+        Random random = world.getTurtleRandom(this);
+        
         // Randomly set life expectancy within the world's defined range
         this.lifeExpectancy = world.getMinLifeExpectancy() + 
                              random.nextInt(world.getMaxLifeExpectancy() 
@@ -47,9 +48,20 @@ public class WealthSpreadingTurtle extends Turtle {
         this.wealthSpreadingCounter = world.getMaxLifeExpectancy() / 8;
         
         // Place turtle at a random location in the world
-        int[] location = world.getRandomPatchLocation();
-        this.x = location[0];
-        this.y = location[1];
+        int[] location = world.getRandomPatchLocation(this);
+        placeAt(world, location[0], location[1]);
+    }
+    
+    /**
+     * Take over another turtle's state, keeping the spreading cycle if it 
+     * was a spreading turtle too
+     */
+    @Override
+    public void copyStateFrom(Turtle other) {
+        super.copyStateFrom(other);
+        if (other instanceof WealthSpreadingTurtle) {
+            wealthSpreadingCounter = ((WealthSpreadingTurtle) other).wealthSpreadingCounter;
+        }
     }
     
     /**
@@ -82,8 +94,7 @@ public class WealthSpreadingTurtle extends Turtle {
         
         // After moving, leave wealth at previous position if there was wealth to spread
         if (wealthToSpread > 0) {
-            Patch previousPatch = world.getPatch(previousX, previousY);
-            previousPatch.addSpreadWealth(wealthToSpread);
+            world.addSpreadWealth(previousX, previousY, wealthToSpread);
         }
     }
     
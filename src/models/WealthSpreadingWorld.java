@@ -1,12 +1,18 @@
 package models;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import core.TickPipeline;
 import core.World;
 import core.Turtle;
 import core.Patch;
 
 public class WealthSpreadingWorld extends World {
+    // Patches holding spread wealth (index x * height + y), in no particular order
+    private int[] ledger = new int[16];
+    private int ledgerSize;
+    private long totalSpreadWealth;
     
     public WealthSpreadingWorld(int width, int height, int maxPeople, int maxVision,
                                int maxMetabolism, int minLifeExpectancy, int maxLifeExpectancy,
@@ -16,84 +22,137 @@ public class WealthSpreadingWorld extends World {
     }
     
     /**
-     * Setup turtles using WealthSpreadingTurtle instead of regular Turtle
+     * Create turtles as WealthSpreadingTurtle instead of regular Turtle
      */
     @Override
-    protected void setupTurtles() {
-        for (int i = 0; i < maxPeople; i++) {
-            // Set initial turtle variables
-            int metabolism = 1 + random.nextInt(maxMetabolism);
-            int vision = 1 + random.nextInt(maxVision);
-            int lifeExpectancy = minLifeExpectancy + 
-                               random.nextInt(maxLifeExpectancy - minLifeExpectancy + 1);
-            
-            WealthSpreadingTurtle turtle = new WealthSpreadingTurtle(metabolism, vision, lifeExpectancy);
-            
-            // Randomly place on a patch
-            turtle.x = random.nextInt(width);
-            turtle.y = random.nextInt(height);
-            
-            // Set initial wealth: metabolism + random 0-49
-            turtle.wealth = metabolism + random.nextInt(50);
-            
-            // Set random age
-            turtle.age = random.nextInt(lifeExpectancy);
-            
-            turtles.add(turtle);
+    protected Turtle newTurtle(int metabolism, int vision, int lifeExpectancy) {
+        return new WealthSpreadingTurtle(metabolism, vision, lifeExpectancy);
+    }
+    
+    @Override
+    public void initialize(int seed) {
+        super.initialize(seed);
+        rebuildLedger();
+    }
+    
+    @Override
+    protected void rebuildIndexes() {
+        super.rebuildIndexes();
+        rebuildLedger();
+    }
+    
+    /**
+     * Drop wealth on a patch, recording the patch in the ledger
+     */
+    @Override
+    public void addSpreadWealth(int x, int y, int wealth) {
+        Patch patch = writablePatch(x, y);
+        if (patch.getSpreadWealth() == 0 && wealth > 0) {
+            if (ledgerSize == ledger.length) {
+                ledger = Arrays.copyOf(ledger, ledgerSize * 2);
+            }
+            ledger[ledgerSize++] = x * height + y;
         }
+        patch.addSpreadWealth(wealth);
+        patchChanged(x, y);
+        totalSpreadWealth += wealth;
     }
     
     /**
-     * Harvest grain, including regular grain and spread wealth
+     * Find every patch holding spread wealth from scratch
+     */
+    private void rebuildLedger() {
+        ledgerSize = 0;
+        totalSpreadWealth = 0;
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                int spreadWealth = map[x][y].getSpreadWealth();
+                if (spreadWealth > 0) {
+                    if (ledgerSize == ledger.length) {
+                        ledger = Arrays.copyOf(ledger, ledgerSize * 2);
+                    }
+                    ledger[ledgerSize++] = x * height + y;
+                    totalSpreadWealth += spreadWealth;
+                }
+            }
+        }
+    }
+    
+    /**
+     * Total wealth lying on patches, kept current by the ledger
+     */
+    public long getTotalSpreadWealth() {
+        return totalSpreadWealth;
+    }
+    
+    /**
+     * Turtles pick up spread wealth together with the grain
      */
     @Override
-    protected void harvest() {
-        // First let all turtles harvest regular grain
-        for (Turtle turtle : turtles) {
-            Patch patch = map[turtle.x][turtle.y];
+    protected void configurePipeline(TickPipeline pipeline) {
+        super.configurePipeline(pipeline);
+        pipeline.replace("harvest", this::harvestWithSpreadWealth);
+    }
+    
+    /**
+     * Harvest grain, including regular grain and spread wealth
+     */
+    private void harvestWithSpreadWealth() {
+        // Spread wealth only needs looking up while some patch holds any
+        boolean anySpreadWealth = ledgerSize > 0;
+        
+        if (parallelHarvest != null) {
+            // Same shares, counted and gathered in parallel phases
+            parallelHarvest.harvest(anySpreadWealth);
+            occupiedPatchesChanged();
+        } else {
+            // First let all turtles harvest regular grain
+            for (Turtle turtle : processingOrder) {
+                Patch patch = map[turtle.x][turtle.y];
+            
+                // Number of turtles on this patch, kept current as turtles move
+                int turtlesOnPatch = getOccupancy(turtle.x, turtle.y);
             
-            // Count how many turtles are on this patch
-            int turtlesOnPatch = 0;
-            for (Turtle t : turtles) {
-                if (t.x == turtle.x && t.y == turtle.y) {
-                    turtlesOnPatch++;
+                // Distribute grain equally
+                if (turtlesOnPatch > 0) {
+                    int grainPerTurtle = patch.getGrainHere() / turtlesOnPatch;
+                    turtle.wealth += grainPerTurtle;
                 }
-            }
             
-            // Distribute grain equally
-            if (turtlesOnPatch > 0) {
-                int grainPerTurtle = patch.getGrainHere() / turtlesOnPatch;
-                turtle.wealth += grainPerTurtle;
+                // Harvest spread wealth (each turtle can get some)
+                if (anySpreadWealth) {
+                    int spreadWealth = patch.getSpreadWealth();
+                    if (spreadWealth > 0 && turtlesOnPatch > 0) {
+                        int wealthPerTurtle = spreadWealth / turtlesOnPatch;
+                        turtle.wealth += wealthPerTurtle;
+                    }
+                }
             }
-            
-            // Harvest spread wealth (each turtle can get some)
-            int spreadWealth = patch.getSpreadWealth();
-            if (spreadWealth > 0 && turtlesOnPatch > 0) {
-                int wealthPerTurtle = spreadWealth / turtlesOnPatch;
-                turtle.wealth += wealthPerTurtle;
+        
+            // Then set grain to 0 on patches with turtles
+            for (Turtle turtle : processingOrder) {
+                map[turtle.x][turtle.y].setGrainHere(0);
+                patchChanged(turtle.x, turtle.y);
             }
         }
         
-        // Then set grain and spread wealth to 0 on patches with turtles
-        for (Turtle turtle : turtles) {
-            Patch patch = map[turtle.x][turtle.y];
-            patch.setGrainHere(0);
-            patch.harvestSpreadWealth(); // Clear spread wealth
+        // and clear the spread wealth of occupied ledger patches
+        int kept = 0;
+        for (int i = 0; i < ledgerSize; i++) {
+            int index = ledger[i];
+            if (occupancy[index] > 0) {
+                totalSpreadWealth -= map[index / height][index % height].harvestSpreadWealth();
+            } else {
+                ledger[kept++] = index;
+            }
         }
+        ledgerSize = kept;
     }
     
     @Override
     public void printStats() {
         System.out.println("=== Wealth Spreading Model Statistics ===");
         super.printStats();
-        
-        // Calculate total spread wealth
-        int totalSpreadWealth = 0;
-        for (int x = 0; x < width; x++) {
-            for (int y = 0; y < height; y++) {
-                totalSpreadWealth += map[x][y].getSpreadWealth();
-            }
-        }
         System.out.println("Total spread wealth on patches: " + totalSpreadWealth);
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,202 @@
+package monitor;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import core.SnapshotPublisher;
+import core.TickSnapshot;
+import core.World;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Embedded HTTP endpoint with live telemetry of running worlds.
+ * - GET /metrics: JSON with the latest tick, ticks/sec, population, Gini and
+ *   class counts of every watched world
+ * - GET /events: server-sent events, one "tick" event per snapshot
+ * Worlds feed it through their SnapshotPublisher with the DROP policy, so the
+ * stepping thread never waits for the server or its clients.
+ */
+public class MetricsServer implements AutoCloseable {
+    private static final int CLIENT_BUFFER = 256;
+    private static final double RATE_SMOOTHING = 0.2;
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Map<String, WorldMetrics> worlds = new ConcurrentSkipListMap<>();
+    private final Set<BlockingQueue<String>> eventClients = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Start serving on localhost
+     * @param port TCP port, or 0 for an ephemeral port
+     */
+    public MetricsServer(int port) throws IOException {
+        this(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+    }
+
+    public MetricsServer(InetSocketAddress address) throws IOException {
+        server = HttpServer.create(address, 0);
+        server.createContext("/metrics", this::handleMetrics);
+        server.createContext("/events", this::handleEvents);
+        server.setExecutor(executor);
+        server.start();
+        System.out.println("Metrics server listening on http://" + address.getHostString() + ":" + server.getAddress().getPort() + "/metrics");
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Watch a world under the given name, publishing every sampled tick
+     */
+    public void watch(String name, World world, int sampleEvery) {
+        watch(name, world.publishSnapshots(SnapshotPublisher.BackPressure.DROP, sampleEvery, false));
+    }
+
+    /**
+     * Watch an existing snapshot publisher under the given name
+     */
+    public void watch(String name, Flow.Publisher<TickSnapshot> publisher) {
+        WorldMetrics metrics = new WorldMetrics(name);
+        worlds.put(name, metrics);
+        publisher.subscribe(metrics);
+    }
+
+    private void handleMetrics(HttpExchange exchange) throws IOException {
+        StringBuilder json = new StringBuilder("{\"worlds\":[");
+        boolean first = true;
+        for (WorldMetrics metrics : worlds.values()) {
+            String entry = metrics.toJson();
+            if (entry == null) {
+                continue;
+            }
+            if (!first) {
+                json.append(',');
+            }
+            json.append(entry);
+            first = false;
+        }
+        json.append("]}");
+
+        byte[] body = json.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    /**
+     * Stream tick events until the client disconnects. Each connection runs 
+     * on its own virtual thread.
+     */
+    private void handleEvents(HttpExchange exchange) throws IOException {
+        BlockingQueue<String> queue = new LinkedBlockingQueue<>(CLIENT_BUFFER);
+        eventClients.add(queue);
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+        exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+        exchange.sendResponseHeaders(200, 0);
+        try (OutputStream out = exchange.getResponseBody()) {
+            while (true) {
+                String data = queue.take();
+                out.write(("event: tick\ndata: " + data + "\n\n").getBytes(StandardCharsets.UTF_8));
+                out.flush();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            // client went away
+        } finally {
+            eventClients.remove(queue);
+        }
+    }
+
+    private void broadcast(String json) {
+        for (BlockingQueue<String> queue : eventClients) {
+            queue.offer(json); // slow clients miss events rather than pile them up
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    /**
+     * Latest snapshot and tick rate of one world
+     */
+    private final class WorldMetrics implements Flow.Subscriber<TickSnapshot> {
+        private final String name;
+        private volatile TickSnapshot latest;
+        private volatile double ticksPerSecond;
+        private long lastNanos;
+        private int lastTick;
+
+        WorldMetrics(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(TickSnapshot snapshot) {
+            long now = System.nanoTime();
+            if (lastNanos != 0 && now > lastNanos) {
+                double rate = (snapshot.getTick() - lastTick) / ((now - lastNanos) / 1e9);
+                ticksPerSecond = ticksPerSecond == 0 ? rate
+                    : RATE_SMOOTHING * rate + (1 - RATE_SMOOTHING) * ticksPerSecond;
+            }
+            lastNanos = now;
+            lastTick = snapshot.getTick();
+            latest = snapshot;
+            if (!eventClients.isEmpty()) {
+                broadcast(toJson());
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            System.err.println("Metrics feed for " + name + " failed: " + throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            worlds.remove(name, this);
+        }
+
+        String toJson() {
+            TickSnapshot snapshot = latest;
+            if (snapshot == null) {
+                return null;
+            }
+            // Locale.ROOT: decimal points (and ASCII digits) whatever the default locale
+            return String.format(Locale.ROOT, "{\"name\":\"%s\",\"model\":\"%s\",\"tick\":%d,\"ticksPerSecond\":%.1f,"
+                                 + "\"population\":%d,\"gini\":%.4f,\"avgWealth\":%.2f,"
+                                 + "\"poor\":%d,\"middle\":%d,\"rich\":%d}",
+                                 escape(name), escape(snapshot.getModel()), snapshot.getTick(), ticksPerSecond,
+                                 snapshot.getPopulation(), snapshot.getGini(), snapshot.getAvgWealth(),
+                                 snapshot.getPoorCount(), snapshot.getMiddleCount(), snapshot.getRichCount());
+        }
+    }
+
+    private static String escape(String text) {
+        return text.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+}
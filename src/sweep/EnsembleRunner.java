@@ -0,0 +1,173 @@
+package sweep;
+
+import core.World;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import models.ModelComparator;
+
+/**
+ * Runs thousands of small simulations concurrently, one virtual thread each.
+ * Two semaphores shape the load:
+ * - the CPU budget bounds how many runs are stepping at once (one permit per
+ *   core by default); runs hold a permit only while computing, so a run
+ *   blocked on export I/O parks its virtual thread and frees the carrier
+ * - the in-flight limit bounds how many runs exist at once, so submit()
+ *   blocks instead of building up memory for thousands of idle worlds
+ */
+public class EnsembleRunner implements AutoCloseable {
+
+    /**
+     * One simulation run. Compute-heavy work goes through the budget.
+     */
+    public interface EnsembleRun {
+        void run(CpuBudget budget) throws Exception;
+    }
+
+    /**
+     * Called after every tick, outside the CPU budget, e.g. for CSV export
+     */
+    public interface TickListener {
+        void onTick(int tick, World world) throws Exception;
+    }
+
+    /**
+     * Shared permits for CPU-bound work
+     */
+    public static class CpuBudget {
+        private final Semaphore permits;
+
+        CpuBudget(int cpuPermits) {
+            this.permits = new Semaphore(cpuPermits);
+        }
+
+        /**
+         * Run compute-bound work while holding one CPU permit
+         */
+        public void compute(Runnable work) throws InterruptedException {
+            permits.acquire();
+            try {
+                work.run();
+            } finally {
+                permits.release();
+            }
+        }
+    }
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final CpuBudget budget;
+    private final Semaphore inFlight;
+    private final AtomicInteger completed = new AtomicInteger();
+    private final List<String> failures = new ArrayList<>();
+    private final long startNanos = System.nanoTime();
+
+    /**
+     * @param cpuPermits Runs allowed to compute at the same time
+     * @param maxInFlight Runs allowed to exist at the same time
+     */
+    public EnsembleRunner(int cpuPermits, int maxInFlight) {
+        this.budget = new CpuBudget(cpuPermits);
+        this.inFlight = new Semaphore(maxInFlight);
+    }
+
+    /**
+     * CPU budget of one permit per available processor
+     */
+    public EnsembleRunner(int maxInFlight) {
+        this(Runtime.getRuntime().availableProcessors(), maxInFlight);
+    }
+
+    /**
+     * Start a run on its own virtual thread, blocking while the in-flight
+     * limit is reached
+     */
+    public void submit(String name, EnsembleRun run) throws InterruptedException {
+        inFlight.acquire();
+        executor.execute(() -> {
+            try {
+                run.run(budget);
+                completed.incrementAndGet();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                recordFailure(name, e);
+            } catch (Exception e) {
+                recordFailure(name, e);
+            } finally {
+                inFlight.release();
+            }
+        });
+    }
+
+    /**
+     * Initialise and step a world, calling the listener after every tick.
+     * Only the simulation holds a CPU permit; the world's own CSV export and
+     * snapshot publishing run outside the budget, like the listener.
+     * @param listener May be null
+     */
+    public void submitWorld(String name, Supplier<World> factory, int seed, int ticks,
+                            TickListener listener) throws InterruptedException {
+        submit(name, cpu -> {
+            try (World world = factory.get()) {
+                cpu.compute(() -> world.initialize(seed));
+                for (int tick = 1; tick <= ticks; tick++) {
+                    cpu.compute(world::simulateTick);
+                    world.completeTick();
+                    if (listener != null) {
+                        listener.onTick(tick, world);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Run an initialised comparator; statistics and CSV export of each step
+     * happen outside the CPU budget
+     */
+    public void submitComparison(String name, ModelComparator comparator, int steps) throws InterruptedException {
+        submit(name, cpu -> {
+            for (int step = 1; step <= steps; step++) {
+                cpu.compute(comparator::stepModels);
+                comparator.recordStep(step);
+            }
+        });
+    }
+
+    /**
+     * Wait until every submitted run has finished
+     */
+    public void awaitCompletion() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+
+    public int getCompletedRuns() {
+        return completed.get();
+    }
+
+    /**
+     * Completed runs per second since the runner was created
+     */
+    public double getRunsPerSecond() {
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        return seconds == 0 ? 0.0 : completed.get() / seconds;
+    }
+
+    public synchronized List<String> getFailures() {
+        return new ArrayList<>(failures);
+    }
+
+    private synchronized void recordFailure(String name, Exception e) {
+        failures.add(name + ": " + e);
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,168 @@
+package sweep;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import models.ModelFactory;
+
+/**
+ * Resident runner that keeps one warm JVM busy with many short jobs.
+ * Every input line is a job spec of space-separated key=value pairs, e.g.
+ *   model=Tax seed=7 ticks=300 people=500 csv=data/output/tax7.csv
+ * Keys: id, model, seed, ticks, the world parameters width, height, people,
+ * vision, metabolism, minLife, maxLife, bestLand, growthInterval, grainGrown
+ * (NetLogo defaults otherwise), sample (export every n-th tick to csv, 0 = last
+ * only), tolerance and window (stop once converged). Blank lines and lines
+ * starting with # are skipped. Runs found in the result cache are answered
+ * without simulating.
+ * Every job is answered by exactly one line, either its final statistics
+ *   id=0 model=Tax seed=7 ticks=300 population=500 ... millis=12
+ * or an error record "id=0 error=...".
+ */
+public class JobServer {
+    private static final String[] PARAM_KEYS = {"width", "height", "people", "vision", "metabolism",
+                                                "minLife", "maxLife", "bestLand", "growthInterval", "grainGrown"};
+
+    private static final Set<String> KEYS = new HashSet<>(Arrays.asList(
+        "id", "model", "seed", "ticks", "sample", "csv", "tolerance", "window"));
+    static {
+        KEYS.addAll(Arrays.asList(PARAM_KEYS));
+    }
+
+    private final AtomicLong nextJobId = new AtomicLong();
+    private final ResultCache cache;
+
+    /**
+     * @param cache Cache of earlier runs, or null to always simulate
+     */
+    public JobServer(ResultCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * Answer job specs from a reader until it ends
+     */
+    public void serve(BufferedReader in, PrintWriter out) throws IOException {
+        String line;
+        while ((line = in.readLine()) != null) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            out.println(runLine(line));
+            out.flush();
+        }
+    }
+
+    /**
+     * Accept connections on a loopback port, serving each on its own virtual
+     * thread. Runs until the process is stopped.
+     */
+    public void listen(int port) throws IOException {
+        try (ServerSocket serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+             ExecutorService connections = Executors.newVirtualThreadPerTaskExecutor()) {
+            System.err.println("Job server listening on 127.0.0.1:" + serverSocket.getLocalPort());
+            while (true) {
+                Socket socket = serverSocket.accept();
+                connections.submit(() -> {
+                    try (socket;
+                         BufferedReader in = new BufferedReader(
+                             new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                         PrintWriter out = new PrintWriter(
+                             new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8))) {
+                        serve(in, out);
+                    } catch (IOException e) {
+                        System.err.println("Job server connection failed: " + e.getMessage());
+                    }
+                    return null;
+                });
+            }
+        }
+    }
+
+    /**
+     * Run one job spec and format its result record
+     */
+    public String runLine(String line) {
+        long jobId = nextJobId.getAndIncrement();
+        try {
+            Map<String, String> spec = parse(line);
+            if (spec.containsKey("id")) {
+                jobId = Long.parseLong(spec.get("id"));
+            }
+            long start = System.nanoTime();
+            SweepResult result = run(jobId, spec);
+            long millis = (System.nanoTime() - start) / 1_000_000;
+            return String.format(Locale.ROOT,
+                "id=%d model=%s seed=%d ticks=%d population=%d poor=%d middle=%d rich=%d "
+                + "avgWealth=%.2f gini=%.4f convergenceTick=%d millis=%d",
+                result.getJobId(), result.getModelType(), result.getSeed(), result.getTicks(),
+                result.getPopulation(), result.getPoorCount(), result.getMiddleCount(), result.getRichCount(),
+                result.getAvgWealth(), result.getGini(), result.getConvergenceTick(), millis);
+        } catch (RuntimeException e) {
+            return "id=" + jobId + " error=" + String.valueOf(e.getMessage()).replace('\n', ' ');
+        }
+    }
+
+    private SweepResult run(long jobId, Map<String, String> spec) {
+        int[] params = ModelFactory.defaultParams();
+        for (int i = 0; i < PARAM_KEYS.length; i++) {
+            params[i] = intValue(spec, PARAM_KEYS[i], params[i]);
+        }
+        double tolerance = Double.parseDouble(spec.getOrDefault("tolerance", "0"));
+        SweepJob job = new SweepJob(jobId, spec.getOrDefault("model", "Baseline"), params,
+                                    intValue(spec, "seed", 42), intValue(spec, "ticks", 300),
+                                    intValue(spec, "window", 50), tolerance);
+
+        // The series keeps every tick the CSV needs, so cached runs can export it too
+        String csv = spec.get("csv");
+        int sampleEvery = intValue(spec, "sample", csv != null || job.stopsOnConvergence() ? 1 : 0);
+        RunSeries series = SweepWorker.runSeries(job, sampleEvery, cache);
+        if (csv != null) {
+            series.exportCsv(csv);
+        }
+        return series.toResult(job);
+    }
+
+    private static Map<String, String> parse(String line) {
+        Map<String, String> spec = new LinkedHashMap<>();
+        for (String pair : line.split("\\s+")) {
+            int equals = pair.indexOf('=');
+            if (equals <= 0) {
+                throw new IllegalArgumentException("Expected key=value, got '" + pair + "'");
+            }
+            if (!KEYS.contains(pair.substring(0, equals))) {
+                throw new IllegalArgumentException("Unknown key: " + pair.substring(0, equals));
+            }
+            spec.put(pair.substring(0, equals), pair.substring(equals + 1));
+        }
+        return spec;
+    }
+
+    private static int intValue(Map<String, String> spec, String key, int defaultValue) {
+        String value = spec.get(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + key + ": " + value);
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package sweep;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+import models.ModelFactory;
+
+/**
+ * On-disk cache of run series, addressed by a hash of everything that
+ * determines a run: model, world parameters, seed, ticks, convergence test,
+ * sampling and the model code version. Entries are deflated binary files,
+ * evicted least recently used first once the directory exceeds its size
+ * budget. Several processes may share a directory; each keeps its own view
+ * of the budget, and entries deleted by another process are simply misses.
+ */
+public class ResultCache {
+    private static final int MAGIC = 0x57575243; // "WWRC"
+    private static final String SUFFIX = ".run";
+
+    private final Path directory;
+    private final long maxBytes;
+    private final Map<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true); // key -> file size, LRU order
+    private long totalBytes;
+    private long hits, misses;
+
+    /**
+     * Open or create a cache directory
+     * @param maxBytes Size budget of all entries together
+     */
+    public ResultCache(Path directory, long maxBytes) throws IOException {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        Files.createDirectories(directory);
+
+        // Rebuild the LRU order from the files' last use
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            for (Path file : stream) {
+                files.add(file);
+            }
+        }
+        files.sort((a, b) -> lastModified(a).compareTo(lastModified(b)));
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            long size = Files.size(file);
+            entries.put(name.substring(0, name.length() - SUFFIX.length()), size);
+            totalBytes += size;
+        }
+    }
+
+    /**
+     * The cache configured by -Dcache.dir (and -Dcache.maxBytes, default
+     * 256 MB), or null if none is configured or it cannot be opened
+     */
+    public static ResultCache fromSystemProperties() {
+        String dir = System.getProperty("cache.dir");
+        if (dir == null) {
+            return null;
+        }
+        try {
+            return new ResultCache(Paths.get(dir), Long.getLong("cache.maxBytes", 256L << 20));
+        } catch (IOException e) {
+            System.err.println("Result cache disabled: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Canonical description of a run; jobs differing only in id share it
+     */
+    public static String describe(SweepJob job, int sampleEvery) {
+        boolean converging = job.stopsOnConvergence();
+        return "version=" + ModelFactory.MODEL_VERSION
+            + " model=" + job.getModelType()
+            + " params=" + Arrays.toString(job.getParams())
+            + " seed=" + job.getSeed()
+            + " ticks=" + job.getTicks()
+            + " window=" + (converging ? job.getConvergenceWindow() : 0)
+            + " tolerance=" + (converging ? job.getConvergenceTolerance() : 0.0)
+            + " sample=" + Math.max(0, sampleEvery);
+    }
+
+    /**
+     * Content address of a run description
+     */
+    public static String key(String description) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(description.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * The cached series of a run, or null
+     */
+    public synchronized RunSeries get(String description) {
+        String key = key(description);
+        Path file = fileOf(key);
+        if (!entries.containsKey(key) && !Files.exists(file)) {
+            misses++;
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                 new InflaterInputStream(Files.newInputStream(file))))) {
+            if (in.readInt() != MAGIC || !in.readUTF().equals(description)) {
+                throw new IOException("Entry does not match its key");
+            }
+            RunSeries series = RunSeries.readFrom(in);
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            if (entries.get(key) == null) {
+                // Written by another process sharing the directory
+                long size = Files.size(file);
+                entries.put(key, size);
+                totalBytes += size;
+            }
+            hits++;
+            return series;
+        } catch (NoSuchFileException e) {
+            forget(key);
+        } catch (IOException e) {
+            System.err.println("Dropping unreadable cache entry " + key + ": " + e.getMessage());
+            remove(key);
+        }
+        misses++;
+        return null;
+    }
+
+    /**
+     * Store the series of a run, evicting the least recently used entries
+     * beyond the size budget
+     */
+    public synchronized void put(String description, RunSeries series) {
+        String key = key(description);
+        Path file = fileOf(key);
+        try {
+            Path temp = Files.createTempFile(directory, key, ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                     new DeflaterOutputStream(Files.newOutputStream(temp))))) {
+                out.writeInt(MAGIC);
+                out.writeUTF(description);
+                series.writeTo(out);
+            }
+            // Readers in other processes see either the old entry or the complete new one
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            forget(key);
+            long size = Files.size(file);
+            entries.put(key, size);
+            totalBytes += size;
+        } catch (IOException e) {
+            System.err.println("Could not cache run " + key + ": " + e.getMessage());
+            return;
+        }
+        evict();
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<String, Long>> eldest = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && entries.size() > 1 && eldest.hasNext()) {
+            Map.Entry<String, Long> entry = eldest.next();
+            totalBytes -= entry.getValue();
+            eldest.remove();
+            try {
+                Files.deleteIfExists(fileOf(entry.getKey()));
+            } catch (IOException e) {
+                System.err.println("Could not evict cache entry " + entry.getKey() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private void remove(String key) {
+        forget(key);
+        try {
+            Files.deleteIfExists(fileOf(key));
+        } catch (IOException e) {
+            System.err.println("Could not delete cache entry " + key + ": " + e.getMessage());
+        }
+    }
+
+    private void forget(String key) {
+        Long size = entries.remove(key);
+        if (size != null) {
+            totalBytes -= size;
+        }
+    }
+
+    private Path fileOf(String key) {
+        return directory.resolve(key + SUFFIX);
+    }
+
+    private static FileTime lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+}
@@ -0,0 +1,165 @@
+package sweep;
+
+import core.World;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import utils.ConvergenceDetector;
+import utils.CsvExporter;
+import utils.PopulationStats;
+
+/**
+ * Metrics of one run at its sampled ticks: population, class counts, average
+ * wealth and Gini per sample, plus the convergence tick. Compact enough to be
+ * cached, and enough to rebuild both the run's result and its CSV export.
+ */
+public class RunSeries {
+    private int size;
+    private int[] ticks = new int[16];
+    private int[] population = new int[16];
+    private int[] poor = new int[16];
+    private int[] middle = new int[16];
+    private int[] rich = new int[16];
+    private double[] avgWealth = new double[16];
+    private double[] gini = new double[16];
+    private int convergenceTick = -1;
+
+    /**
+     * Run an initialised world for at most the given ticks, recording every
+     * sampled tick (0 = only the last). Stops early once the world's
+     * convergence detector, if any, reports a steady state.
+     */
+    public static RunSeries record(World world, int maxTicks, int sampleEvery) {
+        RunSeries series = new RunSeries();
+        ConvergenceDetector detector = world.getConvergenceDetector();
+        int end = world.getTicks() + maxTicks;
+        world.beginBatch(maxTicks, sampleEvery);
+        try {
+            while (world.getTicks() < end) {
+                world.step();
+                boolean converged = detector != null && detector.isConverged();
+                if (world.isSampledTick() || converged) {
+                    series.add(world.getTicks(), world.getPopulationStats());
+                }
+                if (converged) {
+                    break;
+                }
+            }
+        } finally {
+            world.endBatch();
+        }
+        if (detector != null) {
+            series.convergenceTick = detector.getConvergenceTick();
+        }
+        return series;
+    }
+
+    /**
+     * Append the statistics of one sampled tick
+     */
+    public void add(int tick, PopulationStats stats) {
+        add(tick, stats.getCount(), stats.getPoorCount(), stats.getMiddleCount(), stats.getRichCount(),
+            stats.getAvgWealth(), stats.getGini());
+    }
+
+    private void add(int tick, int populationCount, int poorCount, int middleCount, int richCount,
+                     double avgWealthValue, double giniValue) {
+        if (size == ticks.length) {
+            int capacity = size * 2;
+            ticks = Arrays.copyOf(ticks, capacity);
+            population = Arrays.copyOf(population, capacity);
+            poor = Arrays.copyOf(poor, capacity);
+            middle = Arrays.copyOf(middle, capacity);
+            rich = Arrays.copyOf(rich, capacity);
+            avgWealth = Arrays.copyOf(avgWealth, capacity);
+            gini = Arrays.copyOf(gini, capacity);
+        }
+        ticks[size] = tick;
+        population[size] = populationCount;
+        poor[size] = poorCount;
+        middle[size] = middleCount;
+        rich[size] = richCount;
+        avgWealth[size] = avgWealthValue;
+        gini[size] = giniValue;
+        size++;
+    }
+
+    /**
+     * The job's result, taken from the last sample
+     */
+    public SweepResult toResult(SweepJob job) {
+        if (size == 0) {
+            throw new IllegalStateException("Run recorded no samples");
+        }
+        int last = size - 1;
+        return new SweepResult(job.getJobId(), job.getModelType(), job.getSeed(), ticks[last],
+                               population[last], poor[last], middle[last], rich[last],
+                               avgWealth[last], gini[last], convergenceTick);
+    }
+
+    /**
+     * Write every sample as a CSV row, as World's own export would have
+     */
+    public void exportCsv(String filename) {
+        CsvExporter csvExporter = new CsvExporter();
+        csvExporter.initialize(filename);
+        for (int i = 0; i < size; i++) {
+            if (population[i] > 0) {
+                csvExporter.exportData(ticks[i], poor[i], middle[i], rich[i], gini[i]);
+            }
+        }
+        csvExporter.close();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getTick(int sample) {
+        return ticks[sample];
+    }
+
+    public double getGini(int sample) {
+        return gini[sample];
+    }
+
+    public double getAvgWealth(int sample) {
+        return avgWealth[sample];
+    }
+
+    public int getConvergenceTick() {
+        return convergenceTick;
+    }
+
+    /**
+     * Write the series in its binary form
+     */
+    void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(convergenceTick);
+        out.writeInt(size);
+        for (int i = 0; i < size; i++) {
+            out.writeInt(ticks[i]);
+            out.writeInt(population[i]);
+            out.writeInt(poor[i]);
+            out.writeInt(middle[i]);
+            out.writeInt(rich[i]);
+            out.writeDouble(avgWealth[i]);
+            out.writeDouble(gini[i]);
+        }
+    }
+
+    /**
+     * Read a series written by writeTo
+     */
+    static RunSeries readFrom(DataInputStream in) throws IOException {
+        RunSeries series = new RunSeries();
+        series.convergenceTick = in.readInt();
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            series.add(in.readInt(), in.readInt(), in.readInt(), in.readInt(), in.readInt(),
+                       in.readDouble(), in.readDouble());
+        }
+        return series;
+    }
+}
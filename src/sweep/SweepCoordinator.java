@@ -0,0 +1,250 @@
+package sweep;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Coordinator of a distributed sweep. Listens for worker JVMs, hands each idle
+ * worker the next job and streams results to a listener as they arrive.
+ * A job whose worker dies is put back at the front of the queue and retried
+ * on another worker, up to maxAttempts times; a worker that sends nothing
+ * for the job timeout counts as dead. If no worker is connected for the
+ * worker timeout, the jobs still queued are given up as failed.
+ */
+public class SweepCoordinator {
+    private final ServerSocket serverSocket;
+    private final BlockingDeque<SweepJob> pending = new LinkedBlockingDeque<>();
+    private final int maxAttempts;
+    private final List<Process> spawnedWorkers = new ArrayList<>();
+    private final List<String> failures = new ArrayList<>();
+    private CountDownLatch remaining;
+    private Consumer<SweepResult> listener;
+    private final AtomicInteger connectedWorkers = new AtomicInteger();
+    private volatile long lastWorkerSeen; // System.nanoTime() when a worker was last connected
+    private long workerTimeoutNanos = TimeUnit.SECONDS.toNanos(60);
+    private int jobTimeoutMillis = (int) TimeUnit.MINUTES.toMillis(10);
+
+    /**
+     * @param bindAddress Address to listen on (loopback for single-box runs)
+     * @param port TCP port, or 0 for an ephemeral port
+     * @param maxAttempts How often a job may be handed out before it is given up
+     */
+    public SweepCoordinator(InetAddress bindAddress, int port, int maxAttempts) throws IOException {
+        this.serverSocket = new ServerSocket(port, 50, bindAddress);
+        this.maxAttempts = maxAttempts;
+    }
+
+    /**
+     * How long run() waits without any connected worker before failing the
+     * jobs still queued (default 60 seconds)
+     */
+    public void setWorkerTimeout(long timeout, TimeUnit unit) {
+        this.workerTimeoutNanos = unit.toNanos(timeout);
+    }
+
+    /**
+     * How long a worker may take to answer a job before its connection is
+     * dropped and the job retried elsewhere (default 10 minutes); must exceed
+     * the longest job
+     */
+    public void setJobTimeout(long timeout, TimeUnit unit) {
+        this.jobTimeoutMillis = (int) Math.min(Integer.MAX_VALUE, unit.toMillis(timeout));
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Start worker JVMs on this machine that connect back to the coordinator
+     */
+    public void spawnLocalWorkers(int count) throws IOException {
+        String javaBin = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        for (int i = 0; i < count; i++) {
+            List<String> command = new ArrayList<>(List.of(javaBin, "-cp", System.getProperty("java.class.path")));
+            // Local workers share the coordinator's result cache
+            for (String property : new String[]{"cache.dir", "cache.maxBytes"}) {
+                if (System.getProperty(property) != null) {
+                    command.add("-D" + property + "=" + System.getProperty(property));
+                }
+            }
+            command.addAll(List.of("sweep.SweepMain", "worker",
+                                   serverSocket.getInetAddress().getHostAddress(), String.valueOf(getPort())));
+            ProcessBuilder builder = new ProcessBuilder(command);
+            builder.redirectOutput(ProcessBuilder.Redirect.DISCARD);
+            builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+            spawnedWorkers.add(builder.start());
+        }
+    }
+
+    /**
+     * Run all jobs on the connected workers, blocking until every job has
+     * either produced a result, exhausted its attempts or been given up
+     * because no worker was connected for the worker timeout
+     * @param listener Called from worker connection threads for each result
+     */
+    public void run(List<SweepJob> jobs, Consumer<SweepResult> listener) throws InterruptedException {
+        this.listener = listener;
+        this.remaining = new CountDownLatch(jobs.size());
+        pending.addAll(jobs);
+        lastWorkerSeen = System.nanoTime();
+
+        Thread acceptor = new Thread(this::acceptWorkers, "sweep-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+
+        while (!remaining.await(1, TimeUnit.SECONDS)) {
+            if (connectedWorkers.get() == 0 && System.nanoTime() - lastWorkerSeen > workerTimeoutNanos) {
+                failQueued("no worker connected for " + TimeUnit.NANOSECONDS.toSeconds(workerTimeoutNanos) + " s");
+            }
+        }
+        close();
+    }
+
+    /**
+     * Give up every job still waiting for a worker
+     */
+    private void failQueued(String reason) {
+        SweepJob job;
+        while ((job = pending.poll()) != null) {
+            fail(job, reason);
+            remaining.countDown();
+        }
+    }
+
+    /**
+     * Jobs that could not be completed, with the reason
+     */
+    public synchronized List<String> getFailures() {
+        return new ArrayList<>(failures);
+    }
+
+    private void acceptWorkers() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                Thread handler = new Thread(() -> serveWorker(socket), "sweep-worker-" + socket.getPort());
+                handler.setDaemon(true);
+                handler.start();
+            } catch (SocketException e) {
+                return; // server socket closed
+            } catch (IOException e) {
+                System.err.println("Error accepting sweep worker: " + e.getMessage());
+            }
+        }
+    }
+
+    private void serveWorker(Socket socket) {
+        connectedWorkers.incrementAndGet();
+        try {
+            serveJobs(socket);
+        } finally {
+            // Any job of this worker has been requeued or settled by now
+            lastWorkerSeen = System.nanoTime();
+            connectedWorkers.decrementAndGet();
+        }
+    }
+
+    private void serveJobs(Socket socket) {
+        SweepJob job = null;
+        try (socket) {
+            socket.setTcpNoDelay(true);
+            socket.setSoTimeout(jobTimeoutMillis); // a hung worker's read throws SocketTimeoutException
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            if (in.readInt() != SweepProtocol.MAGIC || in.readInt() != SweepProtocol.VERSION) {
+                System.err.println("Rejected sweep worker with incompatible protocol");
+                return;
+            }
+
+            while (remaining.getCount() > 0) {
+                job = pending.poll(100, TimeUnit.MILLISECONDS);
+                if (job == null) {
+                    continue;
+                }
+                job.incrementAttempts();
+                out.writeByte(SweepProtocol.JOB);
+                job.writeTo(out);
+                out.flush();
+
+                byte type = in.readByte();
+                if (type == SweepProtocol.RESULT) {
+                    listener.accept(SweepResult.readFrom(in));
+                } else if (type == SweepProtocol.ERROR) {
+                    in.readLong();
+                    fail(job, in.readUTF());
+                } else {
+                    throw new IOException("Unexpected message type: " + type);
+                }
+                job = null;
+                remaining.countDown();
+            }
+
+            out.writeByte(SweepProtocol.SHUTDOWN);
+            out.flush();
+        } catch (IOException e) {
+            if (job != null) {
+                retry(job, e);
+            }
+        } catch (InterruptedException e) {
+            if (job != null) {
+                pending.addFirst(job);
+            }
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * The worker running this job died: requeue it or give up on it
+     */
+    private void retry(SweepJob job, IOException cause) {
+        if (job.getAttempts() < maxAttempts) {
+            System.err.println("Sweep worker lost, retrying job " + job.getJobId() + ": " + cause);
+            pending.addFirst(job);
+        } else {
+            fail(job, "worker lost " + job.getAttempts() + " times: " + cause);
+            remaining.countDown();
+        }
+    }
+
+    private synchronized void fail(SweepJob job, String reason) {
+        failures.add("Job " + job.getJobId() + " (" + job.getModelType() + ", seed " + job.getSeed() + "): " + reason);
+    }
+
+    /**
+     * Stop accepting workers and stop any worker JVMs this coordinator spawned
+     */
+    public void close() {
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            System.err.println("Error closing sweep coordinator: " + e.getMessage());
+        }
+        for (Process process : spawnedWorkers) {
+            try {
+                if (!process.waitFor(5, TimeUnit.SECONDS)) {
+                    process.destroy();
+                }
+            } catch (InterruptedException e) {
+                process.destroy();
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
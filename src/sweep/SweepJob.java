@@ -0,0 +1,118 @@
+package sweep;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * One simulation run of a sweep: model type, world parameters, seed and length
+ */
+public class SweepJob {
+    private final long jobId;
+    private final String modelType;
+    private final int[] params;
+    private final int seed;
+    private final int ticks;
+    private final int convergenceWindow;
+    private final double convergenceTolerance; // 0 runs every tick
+    private int attempts;
+
+    public SweepJob(long jobId, String modelType, int[] params, int seed, int ticks) {
+        this(jobId, modelType, params, seed, ticks, 0, 0.0);
+    }
+
+    /**
+     * A job that stops early once Gini and average wealth have settled
+     * @param convergenceWindow Ticks the steady-state test looks back over
+     * @param convergenceTolerance Allowed relative spread and drift, 0 to run every tick
+     */
+    public SweepJob(long jobId, String modelType, int[] params, int seed, int ticks,
+                    int convergenceWindow, double convergenceTolerance) {
+        this.jobId = jobId;
+        this.modelType = modelType;
+        this.params = params.clone();
+        this.seed = seed;
+        this.ticks = ticks;
+        this.convergenceWindow = convergenceWindow;
+        this.convergenceTolerance = convergenceTolerance;
+    }
+
+    /**
+     * Write the job in the binary wire format (without the message type byte)
+     */
+    void writeTo(DataOutputStream out) throws IOException {
+        out.writeLong(jobId);
+        out.writeUTF(modelType);
+        out.writeByte(params.length);
+        for (int param : params) {
+            out.writeInt(param);
+        }
+        out.writeInt(seed);
+        out.writeInt(ticks);
+        out.writeInt(convergenceWindow);
+        out.writeDouble(convergenceTolerance);
+    }
+
+    /**
+     * Read a job written by writeTo
+     */
+    static SweepJob readFrom(DataInputStream in) throws IOException {
+        long jobId = in.readLong();
+        String modelType = in.readUTF();
+        int[] params = new int[in.readUnsignedByte()];
+        for (int i = 0; i < params.length; i++) {
+            params[i] = in.readInt();
+        }
+        int seed = in.readInt();
+        int ticks = in.readInt();
+        int convergenceWindow = in.readInt();
+        double convergenceTolerance = in.readDouble();
+        return new SweepJob(jobId, modelType, params, seed, ticks, convergenceWindow, convergenceTolerance);
+    }
+
+    public long getJobId() {
+        return jobId;
+    }
+
+    public String getModelType() {
+        return modelType;
+    }
+
+    public int[] getParams() {
+        return params.clone();
+    }
+
+    public int getSeed() {
+        return seed;
+    }
+
+    public int getTicks() {
+        return ticks;
+    }
+
+    public int getConvergenceWindow() {
+        return convergenceWindow;
+    }
+
+    public double getConvergenceTolerance() {
+        return convergenceTolerance;
+    }
+
+    /**
+     * Whether the job may stop once the run has converged
+     */
+    public boolean stopsOnConvergence() {
+        return convergenceTolerance > 0;
+    }
+
+    /**
+     * Number of times this job has been handed to a worker
+     */
+    int getAttempts() {
+        return attempts;
+    }
+
+    void incrementAttempts() {
+        attempts++;
+    }
+}
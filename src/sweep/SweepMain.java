@@ -0,0 +1,159 @@
+package sweep;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import models.ModelFactory;
+import utils.SweepCsvExporter;
+
+/**
+ * Entry point for distributed sweeps.
+ * Coordinator: java -cp .:src sweep.SweepMain coordinator <localWorkers> <seeds> <ticks> <output.csv> [port] [bindAddress]
+ * Worker:      java -cp .:src sweep.SweepMain worker <host> <port>
+ * Ensemble:    java -cp .:src sweep.SweepMain ensemble <runs> <ticks> [cpuPermits] [maxInFlight]
+ * Job server:  java -cp .:src sweep.SweepMain server [port]
+ */
+public class SweepMain {
+    public static void main(String[] args) throws Exception {
+        if (args.length >= 3 && args[0].equals("worker")) {
+            SweepWorker.run(args[1], Integer.parseInt(args[2]));
+            return;
+        }
+        if (args.length >= 3 && args[0].equals("ensemble")) {
+            runEnsemble(args);
+            return;
+        }
+        if (args.length >= 1 && args[0].equals("server")) {
+            runServer(args);
+            return;
+        }
+        if (args.length < 5 || !args[0].equals("coordinator")) {
+            System.err.println("Usage: sweep.SweepMain coordinator <localWorkers> <seeds> <ticks> <output.csv> [port] [bindAddress]");
+            System.err.println("       sweep.SweepMain worker <host> <port>");
+            System.err.println("       sweep.SweepMain ensemble <runs> <ticks> [cpuPermits] [maxInFlight]");
+            System.err.println("       sweep.SweepMain server [port]");
+            System.exit(1);
+        }
+
+        int localWorkers = Integer.parseInt(args[1]);
+        int seeds = Integer.parseInt(args[2]);
+        int ticks = Integer.parseInt(args[3]);
+        String output = args[4];
+        int port = args.length > 5 ? Integer.parseInt(args[5]) : 0;
+        InetAddress bindAddress = args.length > 6 ? InetAddress.getByName(args[6]) : InetAddress.getLoopbackAddress();
+
+        // -Dconvergence.tolerance=0.05 stops each run once it has settled
+        int convergenceWindow = Integer.getInteger("convergence.window", 50);
+        double convergenceTolerance = Double.parseDouble(System.getProperty("convergence.tolerance", "0"));
+
+        // Every model with every seed, default NetLogo parameters
+        List<SweepJob> jobs = new ArrayList<>();
+        for (String modelType : ModelFactory.MODEL_TYPES) {
+            for (int seed = 1; seed <= seeds; seed++) {
+                jobs.add(new SweepJob(jobs.size(), modelType, ModelFactory.defaultParams(), seed, ticks,
+                                      convergenceWindow, convergenceTolerance));
+            }
+        }
+
+        SweepCsvExporter csvExporter = new SweepCsvExporter();
+        csvExporter.initialize(output);
+        Map<String, double[]> giniByModel = new LinkedHashMap<>(); // model -> {sum, count}
+
+        SweepCoordinator coordinator = new SweepCoordinator(bindAddress, port, 3);
+        // -Dsweep.workerTimeout=120 gives up queued jobs after 2 minutes without workers
+        coordinator.setWorkerTimeout(Long.getLong("sweep.workerTimeout", 60), TimeUnit.SECONDS);
+        // -Dsweep.jobTimeout=1800 allows 30 minutes per job before its worker is presumed hung
+        coordinator.setJobTimeout(Long.getLong("sweep.jobTimeout", 600), TimeUnit.SECONDS);
+        System.out.println("Sweep coordinator listening on " + bindAddress.getHostAddress() + ":" + coordinator.getPort()
+                           + " with " + jobs.size() + " jobs");
+        coordinator.spawnLocalWorkers(localWorkers);
+
+        AtomicInteger completed = new AtomicInteger();
+        long start = System.nanoTime();
+        coordinator.run(jobs, result -> {
+            completed.incrementAndGet();
+            csvExporter.exportResult(result.getJobId(), result.getModelType(), result.getSeed(), result.getTicks(),
+                                     result.getPopulation(), result.getPoorCount(), result.getMiddleCount(),
+                                     result.getRichCount(), result.getAvgWealth(), result.getGini(),
+                                     result.getConvergenceTick());
+            synchronized (giniByModel) {
+                double[] sums = giniByModel.computeIfAbsent(result.getModelType(), k -> new double[2]);
+                sums[0] += result.getGini();
+                sums[1]++;
+            }
+        });
+        double seconds = (System.nanoTime() - start) / 1e9;
+        csvExporter.close();
+
+        System.out.println("=== Sweep Summary ===");
+        for (Map.Entry<String, double[]> entry : giniByModel.entrySet()) {
+            System.out.printf("%s Model - Runs: %d, Mean Final Gini: %.4f%n",
+                              entry.getKey(), (int) entry.getValue()[1], entry.getValue()[0] / entry.getValue()[1]);
+        }
+        List<String> failures = coordinator.getFailures();
+        for (String failure : failures) {
+            System.out.println("Failed: " + failure);
+        }
+        System.out.printf("Completed %d of %d jobs in %.2f s (%.1f runs/sec), %d failed%n", completed.get(),
+                          jobs.size(), seconds, completed.get() / seconds, failures.size());
+    }
+
+    /**
+     * Answer job specs from stdin, or from loopback connections if a port is given
+     */
+    private static void runServer(String[] args) throws IOException {
+        JobServer server = new JobServer(ResultCache.fromSystemProperties());
+        if (args.length > 1) {
+            server.listen(Integer.parseInt(args[1]));
+            return;
+        }
+        // Keep stdout for result records; progress messages go to stderr
+        PrintWriter results = new PrintWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+        System.setOut(System.err);
+        server.serve(new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8)), results);
+    }
+
+    /**
+     * Run many default-sized baseline worlds in this JVM on virtual threads
+     */
+    private static void runEnsemble(String[] args) throws InterruptedException {
+        int runs = Integer.parseInt(args[1]);
+        int ticks = Integer.parseInt(args[2]);
+        int cpuPermits = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        int maxInFlight = args.length > 4 ? Integer.parseInt(args[4]) : 4 * cpuPermits;
+
+        double[] giniSum = new double[1];
+        try (EnsembleRunner runner = new EnsembleRunner(cpuPermits, maxInFlight)) {
+            for (int run = 0; run < runs; run++) {
+                runner.submitWorld("run-" + run, () -> ModelFactory.create("Baseline", ModelFactory.defaultParams()),
+                                   run, ticks, (tick, world) -> {
+                    if (tick == ticks) {
+                        double gini = world.getPopulationStats().getGini();
+                        synchronized (giniSum) {
+                            giniSum[0] += gini;
+                        }
+                    }
+                });
+            }
+            runner.awaitCompletion();
+
+            System.out.println("=== Ensemble Summary ===");
+            System.out.printf("Runs: %d, CPU permits: %d, Max in flight: %d%n", runs, cpuPermits, maxInFlight);
+            System.out.printf("Mean Final Gini: %.4f%n", giniSum[0] / Math.max(1, runner.getCompletedRuns()));
+            System.out.printf("Throughput: %.1f runs/sec%n", runner.getRunsPerSecond());
+            for (String failure : runner.getFailures()) {
+                System.out.println("Failed: " + failure);
+            }
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package sweep;
+
+/**
+ * Binary protocol between sweep coordinator and workers.
+ * After connecting, the worker sends MAGIC and VERSION. From then on the
+ * coordinator sends JOB or SHUTDOWN messages and the worker answers every JOB
+ * with exactly one RESULT or ERROR. Each message starts with its type byte.
+ */
+final class SweepProtocol {
+    static final int MAGIC = 0x57574C44; // "WWLD"
+    static final int VERSION = 2;
+
+    static final byte JOB = 1;
+    static final byte SHUTDOWN = 2;
+    static final byte RESULT = 3;
+    static final byte ERROR = 4;
+
+    private SweepProtocol() {}
+}
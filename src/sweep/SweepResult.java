@@ -0,0 +1,130 @@
+package sweep;
+
+import core.World;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import utils.ConvergenceDetector;
+import utils.PopulationStats;
+
+/**
+ * Final statistics of one sweep job
+ */
+public class SweepResult {
+    private final long jobId;
+    private final String modelType;
+    private final int seed;
+    private final int ticks;
+    private final int population;
+    private final int poorCount;
+    private final int middleCount;
+    private final int richCount;
+    private final double avgWealth;
+    private final double gini;
+    private final int convergenceTick;
+
+    /**
+     * @param ticks Ticks actually run, fewer than requested if the run converged early
+     * @param convergenceTick Tick at which the run converged, or -1
+     */
+    public SweepResult(long jobId, String modelType, int seed, int ticks, int population,
+                       int poorCount, int middleCount, int richCount, double avgWealth, double gini,
+                       int convergenceTick) {
+        this.jobId = jobId;
+        this.modelType = modelType;
+        this.seed = seed;
+        this.ticks = ticks;
+        this.population = population;
+        this.poorCount = poorCount;
+        this.middleCount = middleCount;
+        this.richCount = richCount;
+        this.avgWealth = avgWealth;
+        this.gini = gini;
+        this.convergenceTick = convergenceTick;
+    }
+
+    /**
+     * Summarise the final state of a world that has run the given job
+     */
+    public static SweepResult fromWorld(SweepJob job, World world) {
+        PopulationStats stats = world.getPopulationStats();
+        ConvergenceDetector detector = world.getConvergenceDetector();
+        int convergenceTick = detector == null ? -1 : detector.getConvergenceTick();
+        return new SweepResult(job.getJobId(), job.getModelType(), job.getSeed(), world.getTicks(),
+                               stats.getCount(), stats.getPoorCount(), stats.getMiddleCount(),
+                               stats.getRichCount(), stats.getAvgWealth(), stats.getGini(), convergenceTick);
+    }
+
+    /**
+     * Write the result in the binary wire format (without the message type byte)
+     */
+    void writeTo(DataOutputStream out) throws IOException {
+        out.writeLong(jobId);
+        out.writeUTF(modelType);
+        out.writeInt(seed);
+        out.writeInt(ticks);
+        out.writeInt(population);
+        out.writeInt(poorCount);
+        out.writeInt(middleCount);
+        out.writeInt(richCount);
+        out.writeDouble(avgWealth);
+        out.writeDouble(gini);
+        out.writeInt(convergenceTick);
+    }
+
+    /**
+     * Read a result written by writeTo
+     */
+    static SweepResult readFrom(DataInputStream in) throws IOException {
+        return new SweepResult(in.readLong(), in.readUTF(), in.readInt(), in.readInt(), in.readInt(),
+                               in.readInt(), in.readInt(), in.readInt(), in.readDouble(), in.readDouble(),
+                               in.readInt());
+    }
+
+    public long getJobId() {
+        return jobId;
+    }
+
+    public String getModelType() {
+        return modelType;
+    }
+
+    public int getSeed() {
+        return seed;
+    }
+
+    public int getTicks() {
+        return ticks;
+    }
+
+    public int getPopulation() {
+        return population;
+    }
+
+    public int getPoorCount() {
+        return poorCount;
+    }
+
+    public int getMiddleCount() {
+        return middleCount;
+    }
+
+    public int getRichCount() {
+        return richCount;
+    }
+
+    public double getAvgWealth() {
+        return avgWealth;
+    }
+
+    public double getGini() {
+        return gini;
+    }
+
+    /**
+     * Tick at which the run converged, or -1
+     */
+    public int getConvergenceTick() {
+        return convergenceTick;
+    }
+}
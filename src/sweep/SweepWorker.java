@@ -0,0 +1,97 @@
+package sweep;
+
+import core.World;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.Socket;
+import models.ModelFactory;
+import utils.ConvergenceDetector;
+
+/**
+ * Worker JVM of a distributed sweep: connects to the coordinator, runs the jobs
+ * it is handed and streams back one result per job
+ */
+public class SweepWorker {
+    private static final ResultCache CACHE = ResultCache.fromSystemProperties();
+
+    /**
+     * Connect to the coordinator and serve jobs until it sends SHUTDOWN or 
+     * closes the connection
+     */
+    public static void run(String host, int port) throws IOException {
+        try (Socket socket = new Socket(host, port)) {
+            socket.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            out.writeInt(SweepProtocol.MAGIC);
+            out.writeInt(SweepProtocol.VERSION);
+            out.flush();
+
+            while (true) {
+                byte type;
+                try {
+                    type = in.readByte();
+                } catch (EOFException e) {
+                    return;
+                }
+                if (type == SweepProtocol.SHUTDOWN) {
+                    return;
+                }
+                if (type != SweepProtocol.JOB) {
+                    throw new IOException("Unexpected message type: " + type);
+                }
+
+                SweepJob job = SweepJob.readFrom(in);
+                try {
+                    SweepResult result = runJob(job);
+                    out.writeByte(SweepProtocol.RESULT);
+                    result.writeTo(out);
+                } catch (RuntimeException e) {
+                    out.writeByte(SweepProtocol.ERROR);
+                    out.writeLong(job.getJobId());
+                    out.writeUTF(String.valueOf(e.getMessage()));
+                }
+                out.flush();
+            }
+        }
+    }
+
+    /**
+     * Run one job to completion in this JVM, or take it from the result cache 
+     * configured by -Dcache.dir
+     */
+    public static SweepResult runJob(SweepJob job) {
+        int sampleEvery = job.stopsOnConvergence() ? 1 : 0;
+        return runSeries(job, sampleEvery, CACHE).toResult(job);
+    }
+
+    /**
+     * Run a job recording its metrics every sampleEvery ticks (0 = only the 
+     * last), unless the cache already holds that exact run. The world is
+     * closed afterwards, so the job server's runs release their workers too.
+     * @param cache Result cache, or null
+     */
+    public static RunSeries runSeries(SweepJob job, int sampleEvery, ResultCache cache) {
+        String description = ResultCache.describe(job, sampleEvery);
+        RunSeries series = cache == null ? null : cache.get(description);
+        if (series != null) {
+            return series;
+        }
+        try (World world = ModelFactory.create(job.getModelType(), job.getParams())) {
+            world.initialize(job.getSeed());
+            if (job.stopsOnConvergence()) {
+                world.detectConvergence(new ConvergenceDetector(job.getConvergenceWindow(),
+                                                                job.getConvergenceTolerance()));
+            }
+            series = RunSeries.record(world, job.getTicks(), sampleEvery);
+        }
+        if (cache != null) {
+            cache.put(description, series);
+        }
+        return series;
+    }
+}
@@ -1,5 +1,6 @@
 package utils;
 
+import events.ExportFlushEvent;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
@@ -39,32 +40,38 @@ public class ComparisonCsvExporter {
             return;
         }
 
-        // Find max wealth for class distribution
-        int maxWealth = wealths.stream().mapToInt(Integer::intValue).max().orElse(0);
-        
-        // Calculate wealth class distribution
-        int poorCount = 0, middleCount = 0, richCount = 0;
-        int totalWealth = 0;
-        
-        for (int wealth : wealths) {
-            totalWealth += wealth;
-            if (wealth <= maxWealth / 3) {
-                poorCount++;
-            } else if (wealth <= (maxWealth * 2 / 3)) {
-                middleCount++;
-            } else {
-                richCount++;
-            }
+        exportModelStats(round, modelType, population, PopulationStats.of(wealths));
+    }
+
+    /**
+     * Export data for one model in comparison from precomputed statistics
+     * @param round Current simulation round/tick
+     * @param modelType Type of model (e.g., "Baseline", "Tax", "Spreading", "Inheritance")
+     * @param population Current population size
+     * @param stats Wealth statistics of the population
+     */
+    public void exportModelStats(int round, String modelType, int population, PopulationStats stats) {
+        if (!isInitialized || csvWriter == null || stats.getCount() == 0) {
+            return;
         }
-        
-        // Calculate average wealth and Gini coefficient
-        double avgWealth = (double) totalWealth / wealths.size();
-        double giniCoefficient = GiniCalculator.compute(wealths);
+
+        int poorCount = stats.getPoorCount();
+        int middleCount = stats.getMiddleCount();
+        int richCount = stats.getRichCount();
+        double avgWealth = stats.getAvgWealth();
+        double giniCoefficient = stats.getGini();
         
         // Export the data
+        ExportFlushEvent flushEvent = new ExportFlushEvent();
+        flushEvent.begin();
         csvWriter.printf("%d,%s,%d,%d,%d,%d,%.2f,%.4f%n", 
             round, modelType, population, poorCount, middleCount, richCount, avgWealth, giniCoefficient);
         csvWriter.flush(); // Ensure data is written immediately
+        if (flushEvent.shouldCommit()) {
+            flushEvent.file = filename;
+            flushEvent.round = round;
+            flushEvent.commit();
+        }
     }
 
     /**
@@ -0,0 +1,97 @@
+package utils;
+
+/**
+ * Steady-state test on the per-tick Gini coefficient and average wealth.
+ * Keeps the last window samples of both series; they count as settled once,
+ * for each series, the standard deviation and the least-squares drift across
+ * the window are both within tolerance relative to the window mean. The first
+ * sample at which that holds is the convergence tick.
+ */
+public class ConvergenceDetector {
+    private final int window;
+    private final double tolerance;
+    private final double[] gini;
+    private final double[] avgWealth;
+    private int samples;
+    private int convergenceTick = -1;
+
+    /**
+     * @param window Number of samples the test looks back over
+     * @param tolerance Allowed relative spread and drift, e.g. 0.05 for 5%
+     */
+    public ConvergenceDetector(int window, double tolerance) {
+        if (window < 2) {
+            throw new IllegalArgumentException("Convergence window needs at least 2 samples");
+        }
+        this.window = window;
+        this.tolerance = tolerance;
+        this.gini = new double[window];
+        this.avgWealth = new double[window];
+    }
+
+    /**
+     * Add the statistics of a sampled tick
+     * @return true once the run has converged
+     */
+    public boolean add(int tick, PopulationStats stats) {
+        return add(tick, stats.getGini(), stats.getAvgWealth());
+    }
+
+    /**
+     * Add one sample of both series
+     * @return true once the run has converged
+     */
+    public boolean add(int tick, double giniValue, double avgWealthValue) {
+        if (convergenceTick >= 0) {
+            return true;
+        }
+        gini[samples % window] = giniValue;
+        avgWealth[samples % window] = avgWealthValue;
+        samples++;
+        if (samples >= window && isSteady(gini) && isSteady(avgWealth)) {
+            convergenceTick = tick;
+        }
+        return convergenceTick >= 0;
+    }
+
+    /**
+     * Whether a series is flat and quiet over the window
+     */
+    private boolean isSteady(double[] series) {
+        // Oldest sample first, x = 0 .. window - 1
+        double sum = 0, sumSq = 0, weightedSum = 0;
+        for (int i = 0; i < window; i++) {
+            double value = series[(samples + i) % window];
+            sum += value;
+            sumSq += value * value;
+            weightedSum += i * value;
+        }
+        double mean = sum / window;
+        double variance = Math.max(0, sumSq / window - mean * mean);
+        double meanX = (window - 1) / 2.0;
+        double varianceX = (window * (double) window - 1) / 12.0;
+        double slope = (weightedSum / window - meanX * mean) / varianceX;
+
+        double scale = tolerance * Math.max(Math.abs(mean), 1e-9);
+        return Math.sqrt(variance) <= scale && Math.abs(slope) * (window - 1) <= scale;
+    }
+
+    public boolean isConverged() {
+        return convergenceTick >= 0;
+    }
+
+    /**
+     * Tick of the sample at which convergence was detected, or -1
+     */
+    public int getConvergenceTick() {
+        return convergenceTick;
+    }
+
+    public int getWindow() {
+        return window;
+    }
+
+    public double getTolerance() {
+        return tolerance;
+    }
+}
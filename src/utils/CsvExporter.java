@@ -1,5 +1,6 @@
 package utils;
 
+import events.ExportFlushEvent;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
@@ -40,9 +41,16 @@ public class CsvExporter {
             return;
         }
 
+        ExportFlushEvent flushEvent = new ExportFlushEvent();
+        flushEvent.begin();
         csvWriter.printf("%d,%d,%d,%d,%.4f%n", 
             round, poorCount, middleCount, richCount, giniCoefficient);
         csvWriter.flush(); // Ensure data is written immediately
+        if (flushEvent.shouldCommit()) {
+            flushEvent.file = filename;
+            flushEvent.round = round;
+            flushEvent.commit();
+        }
     }
 
     /**
@@ -55,27 +63,20 @@ public class CsvExporter {
             return;
         }
 
-        // Find max wealth for class distribution
-        int maxWealth = wealths.stream().mapToInt(Integer::intValue).max().orElse(0);
-        
-        // Calculate wealth class distribution
-        int poorCount = 0, middleCount = 0, richCount = 0;
-        
-        for (int wealth : wealths) {
-            if (wealth <= maxWealth / 3) {
-                poorCount++;
-            } else if (wealth <= (maxWealth * 2 / 3)) {
-                middleCount++;
-            } else {
-                richCount++;
-            }
+        exportStats(round, PopulationStats.of(wealths));
+    }
+
+    /**
+     * Export class distribution and Gini coefficient from precomputed statistics
+     * @param round Current simulation round/tick
+     * @param stats Wealth statistics of the population
+     */
+    public void exportStats(int round, PopulationStats stats) {
+        if (!isInitialized || csvWriter == null || stats.getCount() == 0) {
+            return;
         }
-        
-        // Calculate Gini coefficient
-        double giniCoefficient = GiniCalculator.compute(wealths);
-        
-        // Export the data
-        exportData(round, poorCount, middleCount, richCount, giniCoefficient);
+
+        exportData(round, stats.getPoorCount(), stats.getMiddleCount(), stats.getRichCount(), stats.getGini());
     }
 
     /**
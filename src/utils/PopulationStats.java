@@ -0,0 +1,350 @@
+package utils;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Population wealth statistics gathered in a single sweep over the turtles.
+ * Every add() updates min, max, the 64-bit sum and a dense count per wealth
+ * value. Class counts and the Gini coefficient are then read off the counts
+ * in wealth order, which is the sorted input GiniCalculator needs, so no
+ * reporter or exporter has to revisit the population.
+ * Approximate statistics feed a WealthSketch instead: count, total, minimum
+ * and maximum stay exact, while class counts, the histogram and the Gini
+ * coefficient are estimated from the sketch within its error bounds.
+ */
+public class PopulationStats {
+    // Above this many distinct slots per turtle the dense counts are replaced by a sort
+    private static final int MAX_SLOTS_PER_TURTLE = 8;
+    private static final int MIN_SLOTS = 1024;
+
+    private int count;
+    private long totalWealth;
+    private int minWealth = Integer.MAX_VALUE;
+    private int maxWealth = Integer.MIN_VALUE;
+
+    // counts[i] = number of turtles with wealth base + i
+    private int[] counts = new int[0];
+    private int base;
+    // Raw values, only kept once the wealth range is too sparse for dense counts
+    private int[] values;
+
+    // Replaces counts and values for approximate statistics, null when exact
+    private final WealthSketch sketch;
+
+    private boolean finished;
+    private int poorCount, middleCount, richCount;
+    private double gini;
+
+    public PopulationStats() {
+        this.sketch = null;
+    }
+
+    private PopulationStats(WealthSketch sketch) {
+        this.sketch = sketch;
+    }
+
+    /**
+     * Empty approximate statistics, backed by a sketch of size k
+     */
+    public static PopulationStats approximate(int k) {
+        return new PopulationStats(new WealthSketch(k));
+    }
+
+    /**
+     * Approximate statistics of the values in a sketch, e.g. one merged from
+     * shards or replicates. Adding to them adds to the sketch.
+     */
+    public static PopulationStats of(WealthSketch sketch) {
+        PopulationStats stats = new PopulationStats(sketch);
+        stats.count = Math.toIntExact(sketch.getCount());
+        stats.totalWealth = sketch.getTotalWealth();
+        if (sketch.getCount() > 0) {
+            stats.minWealth = sketch.getMinWealth();
+            stats.maxWealth = sketch.getMaxWealth();
+        }
+        return stats;
+    }
+
+    /**
+     * Statistics of a list of wealth values
+     */
+    public static PopulationStats of(List<Integer> wealths) {
+        PopulationStats stats = new PopulationStats();
+        for (int wealth : wealths) {
+            stats.add(wealth);
+        }
+        return stats;
+    }
+
+    /**
+     * Add one turtle's wealth
+     */
+    public void add(int wealth) {
+        finished = false;
+        count++;
+        totalWealth += wealth;
+        if (wealth < minWealth) minWealth = wealth;
+        if (wealth > maxWealth) maxWealth = wealth;
+
+        if (sketch != null) {
+            sketch.add(wealth);
+            return;
+        }
+        if (values != null) {
+            appendValue(wealth);
+            return;
+        }
+        if (counts.length == 0) {
+            counts = new int[64];
+            base = wealth;
+        }
+        int slot = wealth - base;
+        if (slot < 0 || slot >= counts.length) {
+            if (!growCounts()) {
+                switchToValues();
+                appendValue(wealth);
+                return;
+            }
+            slot = wealth - base;
+        }
+        counts[slot]++;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public long getTotalWealth() {
+        return totalWealth;
+    }
+
+    public int getMinWealth() {
+        return count == 0 ? 0 : minWealth;
+    }
+
+    public int getMaxWealth() {
+        return count == 0 ? 0 : maxWealth;
+    }
+
+    public double getAvgWealth() {
+        return count == 0 ? 0.0 : (double) totalWealth / count;
+    }
+
+    /**
+     * Turtles with wealth at most a third of the maximum (NetLogo's red turtles)
+     */
+    public int getPoorCount() {
+        finish();
+        return poorCount;
+    }
+
+    /**
+     * Turtles with wealth up to two thirds of the maximum (green turtles)
+     */
+    public int getMiddleCount() {
+        finish();
+        return middleCount;
+    }
+
+    /**
+     * Turtles above two thirds of the maximum (blue turtles)
+     */
+    public int getRichCount() {
+        finish();
+        return richCount;
+    }
+
+    /**
+     * Gini coefficient, identical to GiniCalculator.compute on the same values
+     * unless approximate
+     */
+    public double getGini() {
+        finish();
+        return gini;
+    }
+
+    /**
+     * Whether the statistics are estimated from a sketch
+     */
+    public boolean isApproximate() {
+        return sketch != null;
+    }
+
+    /**
+     * The sketch behind approximate statistics, for quantiles, shares and
+     * error bounds; null when exact
+     */
+    public WealthSketch getSketch() {
+        return sketch;
+    }
+
+    /**
+     * Number of turtles per equal-width wealth bin between the minimum and the
+     * maximum wealth
+     */
+    public int[] getWealthHistogram(int bins) {
+        int[] histogram = new int[bins];
+        if (count == 0) {
+            return histogram;
+        }
+        long range = (long) getMaxWealth() - getMinWealth() + 1;
+        if (sketch != null) {
+            // Bin b ends below the first wealth that maps to bin b + 1
+            long below = 0;
+            for (int bin = 0; bin < bins; bin++) {
+                long end = minWealth + ((bin + 1) * range + bins - 1) / bins;
+                long atMost = bin == bins - 1 ? count : sketch.getRank((int) (end - 1));
+                histogram[bin] = (int) (atMost - below);
+                below = atMost;
+            }
+        } else if (values != null) {
+            for (int i = 0; i < count; i++) {
+                histogram[(int) ((values[i] - (long) minWealth) * bins / range)]++;
+            }
+        } else {
+            for (int slot = minWealth - base; slot <= maxWealth - base; slot++) {
+                if (counts[slot] > 0) {
+                    histogram[(int) (((long) base + slot - minWealth) * bins / range)] += counts[slot];
+                }
+            }
+        }
+        return histogram;
+    }
+
+    /**
+     * Derive class counts and Gini from the gathered counts
+     */
+    private void finish() {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        poorCount = middleCount = richCount = 0;
+        gini = 0.0;
+        if (count == 0) {
+            return;
+        }
+
+        int poorThreshold = maxWealth / 3;
+        int richThreshold = maxWealth * 2 / 3;
+        if (sketch != null) {
+            poorCount = (int) sketch.getRank(poorThreshold);
+            middleCount = (int) sketch.getRank(richThreshold) - poorCount;
+            richCount = count - poorCount - middleCount;
+            gini = sketch.getGini();
+            return;
+        }
+        GiniAccumulator lorenz = new GiniAccumulator(count, totalWealth);
+
+        if (values != null) {
+            Arrays.sort(values, 0, count);
+            for (int i = 0; i < count; i++) {
+                classify(values[i], 1, poorThreshold, richThreshold);
+                lorenz.add(values[i]);
+            }
+        } else {
+            for (int slot = minWealth - base; slot <= maxWealth - base; slot++) {
+                int turtles = counts[slot];
+                if (turtles == 0) {
+                    continue;
+                }
+                int wealth = base + slot;
+                classify(wealth, turtles, poorThreshold, richThreshold);
+                for (int i = 0; i < turtles; i++) {
+                    lorenz.add(wealth);
+                }
+            }
+        }
+        gini = lorenz.result();
+    }
+
+    private void classify(int wealth, int turtles, int poorThreshold, int richThreshold) {
+        if (wealth <= poorThreshold) {
+            poorCount += turtles;
+        } else if (wealth <= richThreshold) {
+            middleCount += turtles;
+        } else {
+            richCount += turtles;
+        }
+    }
+
+    /**
+     * Widen the dense counts to cover [minWealth, maxWealth]
+     * @return false if the range has become too sparse for dense counts
+     */
+    private boolean growCounts() {
+        long range = (long) maxWealth - minWealth + 1;
+        if (range > Math.max(MIN_SLOTS, (long) count * MAX_SLOTS_PER_TURTLE)) {
+            return false;
+        }
+        int newLength = counts.length;
+        while (newLength < range) {
+            newLength *= 2;
+        }
+        int newBase = Math.min(base, minWealth);
+        if ((long) newBase + newLength <= maxWealth) {
+            newBase = maxWealth - newLength + 1;
+        }
+        int[] newCounts = new int[newLength];
+        // Slots past the previous maximum are empty, so a truncated copy is exact
+        int offset = base - newBase;
+        System.arraycopy(counts, 0, newCounts, offset, Math.min(counts.length, newLength - offset));
+        counts = newCounts;
+        base = newBase;
+        return true;
+    }
+
+    private void switchToValues() {
+        values = new int[Math.max(16, count * 2)];
+        int n = 0;
+        for (int slot = 0; slot < counts.length; slot++) {
+            for (int i = 0; i < counts[slot]; i++) {
+                values[n++] = base + slot;
+            }
+        }
+        counts = new int[0];
+    }
+
+    private void appendValue(int wealth) {
+        // add() has already counted this value
+        if (values.length < count) {
+            values = Arrays.copyOf(values, count * 2);
+        }
+        values[count - 1] = wealth;
+    }
+
+    /**
+     * Area between the Lorenz curve and the line of equality, fed in ascending
+     * wealth order. Mirrors GiniCalculator step for step.
+     */
+    private static final class GiniAccumulator {
+        private final int numPeople;
+        private final double totalWealth;
+        private double wealthSumSoFar;
+        private double areaBetweenCurves;
+        private int i;
+
+        GiniAccumulator(int numPeople, long totalWealth) {
+            this.numPeople = numPeople;
+            this.totalWealth = totalWealth;
+        }
+
+        void add(int wealth) {
+            double x1 = (double) i / numPeople;
+            double x2 = (double) (i + 1) / numPeople;
+            double y1 = wealthSumSoFar / totalWealth;
+            wealthSumSoFar += wealth;
+            double y2 = wealthSumSoFar / totalWealth;
+
+            double trapezoidArea = (x2 - x1) * (y1 + y2) / 2;
+            double rectangleArea = (x2 - x1) * (x1 + x2) / 2;
+            areaBetweenCurves += rectangleArea - trapezoidArea;
+            i++;
+        }
+
+        double result() {
+            return areaBetweenCurves * 2;
+        }
+    }
+}
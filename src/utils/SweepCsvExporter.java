@@ -0,0 +1,65 @@
+package utils;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+public class SweepCsvExporter {
+    private PrintWriter csvWriter;
+    private boolean isInitialized = false;
+    private String filename;
+
+    /**
+     * Initialize CSV export file with headers for sweep results
+     * @param filename The name of the CSV file to create
+     */
+    public void initialize(String filename) {
+        this.filename = filename;
+        try {
+            csvWriter = new PrintWriter(new FileWriter(filename));
+            csvWriter.println("Job_Id,Model_Type,Seed,Ticks,Population,Poor_Count,Middle_Count,Rich_Count,Avg_Wealth,Gini_Coefficient,Convergence_Tick");
+            isInitialized = true;
+            System.out.println("Sweep CSV export initialized: " + filename);
+        } catch (IOException e) {
+            System.err.println("Error initializing sweep CSV file: " + e.getMessage());
+            isInitialized = false;
+        }
+    }
+
+    /**
+     * Export the final statistics of one sweep job; the convergence tick is -1 
+     * for runs that did not converge or did not test for it. Safe to call from several
+     * threads, since results stream in from every worker connection.
+     */
+    public synchronized void exportResult(long jobId, String modelType, int seed, int ticks, int population,
+                                          int poorCount, int middleCount, int richCount,
+                                          double avgWealth, double giniCoefficient, int convergenceTick) {
+        if (!isInitialized || csvWriter == null) {
+            return;
+        }
+
+        csvWriter.printf("%d,%s,%d,%d,%d,%d,%d,%d,%.2f,%.4f,%d%n",
+            jobId, modelType, seed, ticks, population, poorCount, middleCount, richCount, avgWealth, giniCoefficient,
+            convergenceTick);
+        csvWriter.flush(); // Ensure data is written immediately
+    }
+
+    /**
+     * Close the CSV file and clean up resources
+     */
+    public synchronized void close() {
+        if (csvWriter != null) {
+            csvWriter.close();
+            isInitialized = false;
+            System.out.println("Sweep CSV export completed: " + filename);
+        }
+    }
+
+    /**
+     * Check if the exporter is properly initialized
+     * @return true if initialized and ready to export
+     */
+    public boolean isInitialized() {
+        return isInitialized;
+    }
+}
@@ -0,0 +1,456 @@
+package utils;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Mergeable quantile sketch of wealth values (a KLL sketch), for populations
+ * and replicate sets too large to sort every tick. Values enter level 0; a
+ * full level is sorted and every other value moves up a level with twice the
+ * weight, so at most about 4k values are kept however many are added. Sketches of
+ * disjoint shards or replicates merge into the sketch of their union without
+ * the raw values. Count, total, minimum and maximum stay exact.
+ * Estimates hold to within getRankError() of the population in rank (with
+ * 99% confidence); the Gini coefficient and top shares carry bounds derived
+ * from that rank band and the retained values.
+ * While fewer values than the capacity were added every result is exact.
+ */
+public class WealthSketch {
+    public static final int DEFAULT_K = 200;
+    private static final int MIN_LEVEL_WIDTH = 8;
+
+    private final int k;
+    private final Random random; // Which half of a sorted level moves up
+
+    // levels[h] holds values of weight 2^h, the first sizes[h] of them used,
+    // in ascending order above level 0
+    private int[][] levels = new int[1][];
+    private int[] sizes = new int[1];
+    private int[] scratch = new int[0]; // Values moving up during a compaction
+    private int[] tally = new int[0];   // Counts while sorting level 0, all zero between sorts
+    private int retained;
+    private int capacity;
+
+    private long count;
+    private long totalWealth;
+    private int minWealth = Integer.MAX_VALUE;
+    private int maxWealth = Integer.MIN_VALUE;
+
+    // Retained values in ascending order with their weights, null when stale
+    private int[] sortedValues;
+    private long[] sortedWeights;
+
+    public WealthSketch() {
+        this(DEFAULT_K, 0);
+    }
+
+    public WealthSketch(int k) {
+        this(k, 0);
+    }
+
+    /**
+     * Sketch keeping at most about 4k values, with compaction choices drawn from the
+     * given seed so that equal inputs give equal sketches
+     */
+    public WealthSketch(int k, long seed) {
+        if (k < MIN_LEVEL_WIDTH) {
+            throw new IllegalArgumentException("Sketch size must be at least " + MIN_LEVEL_WIDTH + ", got " + k);
+        }
+        this.k = k;
+        this.random = new Random(seed);
+        this.levels[0] = new int[levelCapacity(0)];
+        this.capacity = levelCapacity(0);
+    }
+
+    /**
+     * Add one turtle's wealth
+     */
+    public void add(int wealth) {
+        count++;
+        totalWealth += wealth;
+        if (wealth < minWealth) minWealth = wealth;
+        if (wealth > maxWealth) maxWealth = wealth;
+        append(0, wealth);
+        if (retained >= capacity) {
+            compress();
+        }
+    }
+
+    /**
+     * Add the values of another sketch of the same size, which is left
+     * unchanged. The result estimates the union of both inputs.
+     */
+    public void merge(WealthSketch other) {
+        if (other.k != k) {
+            throw new IllegalArgumentException("Cannot merge sketches of size " + other.k + " and " + k);
+        }
+        if (other.count == 0) {
+            return;
+        }
+        while (levels.length < other.levels.length) {
+            addLevel();
+        }
+        for (int i = 0; i < other.sizes[0]; i++) {
+            append(0, other.levels[0][i]);
+        }
+        for (int h = 1; h < other.levels.length; h++) {
+            insertSorted(h, other.levels[h], other.sizes[h]);
+        }
+        count += other.count;
+        totalWealth += other.totalWealth;
+        minWealth = Math.min(minWealth, other.minWealth);
+        maxWealth = Math.max(maxWealth, other.maxWealth);
+        while (retained >= capacity) {
+            compress();
+        }
+    }
+
+    private void append(int level, int wealth) {
+        if (sizes[level] == levels[level].length) {
+            levels[level] = Arrays.copyOf(levels[level], Math.max(MIN_LEVEL_WIDTH, sizes[level] * 2));
+        }
+        levels[level][sizes[level]++] = wealth;
+        retained++;
+        sortedValues = null;
+    }
+
+    /**
+     * Compact the lowest full level into the one above it
+     */
+    private void compress() {
+        for (int h = 0; h < levels.length; h++) {
+            if (sizes[h] < levelCapacity(h)) {
+                continue;
+            }
+            if (h + 1 == levels.length) {
+                addLevel();
+            }
+            int[] level = levels[h];
+            int size = sizes[h];
+            if (h == 0) {
+                sortInput(level, size); // Levels above 0 are kept sorted
+            }
+            // With an odd size the smallest value stays behind, so values move up in pairs
+            int kept = size % 2;
+            int offset = random.nextBoolean() ? 1 : 0;
+            int promoted = (size - kept) / 2;
+            if (scratch.length < promoted) {
+                scratch = new int[promoted];
+            }
+            for (int i = 0; i < promoted; i++) {
+                scratch[i] = level[kept + 2 * i + offset];
+            }
+            sizes[h] = kept;
+            retained -= size - kept;
+            insertSorted(h + 1, scratch, promoted);
+            return;
+        }
+    }
+
+    /**
+     * Sort level 0, by counting when its values span a narrow range as
+     * wealth usually does, which is several times faster than comparing
+     */
+    private void sortInput(int[] level, int size) {
+        int low = level[0], high = level[0];
+        for (int i = 1; i < size; i++) {
+            low = Math.min(low, level[i]);
+            high = Math.max(high, level[i]);
+        }
+        long span = (long) high - low + 1;
+        if (span > 4L * size) {
+            Arrays.sort(level, 0, size);
+            return;
+        }
+        if (tally.length < span) {
+            tally = new int[(int) span];
+        }
+        for (int i = 0; i < size; i++) {
+            tally[level[i] - low]++;
+        }
+        int out = 0;
+        for (int value = 0; value < span; value++) {
+            for (int c = tally[value]; c > 0; c--) {
+                level[out++] = low + value;
+            }
+            tally[value] = 0;
+        }
+    }
+
+    /**
+     * Merge sorted values into a level above 0, back to front in place
+     */
+    private void insertSorted(int level, int[] values, int count) {
+        int size = sizes[level];
+        if (size + count > levels[level].length) {
+            levels[level] = Arrays.copyOf(levels[level], Math.max(MIN_LEVEL_WIDTH, (size + count) * 2));
+        }
+        int[] target = levels[level];
+        int i = size - 1, j = count - 1;
+        for (int out = size + count - 1; j >= 0; out--) {
+            target[out] = i >= 0 && target[i] > values[j] ? target[i--] : values[j--];
+        }
+        sizes[level] = size + count;
+        retained += count;
+        sortedValues = null;
+    }
+
+    private void addLevel() {
+        levels = Arrays.copyOf(levels, levels.length + 1);
+        sizes = Arrays.copyOf(sizes, sizes.length + 1);
+        levels[levels.length - 1] = new int[MIN_LEVEL_WIDTH];
+        capacity = 0;
+        for (int h = 0; h < levels.length; h++) {
+            capacity += levelCapacity(h);
+        }
+    }
+
+    /**
+     * Values a level may hold before it is compacted: k at the top, shrinking
+     * by 2/3 per level below it, and k at level 0 so that new values are
+     * sorted in batches
+     */
+    private int levelCapacity(int level) {
+        if (level == 0) {
+            return k;
+        }
+        int depth = levels.length - 1 - level;
+        return Math.max(MIN_LEVEL_WIDTH, (int) Math.ceil(k * Math.pow(2.0 / 3.0, depth)));
+    }
+
+    private void sort() {
+        if (sortedValues != null) {
+            return;
+        }
+        long[] entries = new long[retained];
+        int n = 0;
+        for (int h = 0; h < levels.length; h++) {
+            for (int i = 0; i < sizes[h]; i++) {
+                // Value in the high half, so entries sort by value; level in the low half
+                entries[n++] = ((long) levels[h][i] << 32) | h;
+            }
+        }
+        Arrays.sort(entries);
+        sortedValues = new int[n];
+        sortedWeights = new long[n];
+        for (int i = 0; i < n; i++) {
+            sortedValues[i] = (int) (entries[i] >> 32);
+            sortedWeights[i] = 1L << (int) entries[i];
+        }
+    }
+
+    public int getK() {
+        return k;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getTotalWealth() {
+        return totalWealth;
+    }
+
+    public int getMinWealth() {
+        return count == 0 ? 0 : minWealth;
+    }
+
+    public int getMaxWealth() {
+        return count == 0 ? 0 : maxWealth;
+    }
+
+    public double getAvgWealth() {
+        return count == 0 ? 0.0 : (double) totalWealth / count;
+    }
+
+    /**
+     * Values kept by the sketch
+     */
+    public int getRetained() {
+        return retained;
+    }
+
+    /**
+     * Whether every value added is still kept, so that all results are exact
+     */
+    public boolean isExact() {
+        return levels.length == 1;
+    }
+
+    /**
+     * Maximum error of any estimated rank as a fraction of the count, with
+     * 99% confidence: the empirical bound of KLL sketches with this level
+     * schedule, 0 while the sketch is exact
+     */
+    public double getRankError() {
+        return isExact() ? 0.0 : 2.296 / Math.pow(k, 0.9723);
+    }
+
+    /**
+     * Estimated number of values at most the given wealth
+     */
+    public long getRank(int wealth) {
+        sort();
+        long rank = 0;
+        for (int i = 0; i < sortedValues.length && sortedValues[i] <= wealth; i++) {
+            rank += sortedWeights[i];
+        }
+        return rank;
+    }
+
+    /**
+     * Estimated wealth below which the given fraction of the population lies
+     */
+    public int getQuantile(double fraction) {
+        if (count == 0) {
+            return 0;
+        }
+        sort();
+        long target = Math.max(1, (long) Math.ceil(fraction * count));
+        long rank = 0;
+        for (int i = 0; i < sortedValues.length; i++) {
+            rank += sortedWeights[i];
+            if (rank >= target) {
+                return sortedValues[i];
+            }
+        }
+        return sortedValues[sortedValues.length - 1];
+    }
+
+    public int getMedian() {
+        return getQuantile(0.5);
+    }
+
+    /**
+     * Estimated Gini coefficient: the area between the Lorenz curve of the
+     * retained values, each standing for its weight in turtles, and the line
+     * of equality, as GiniCalculator computes it for exact values
+     */
+    public double getGini() {
+        if (count == 0) {
+            return 0.0;
+        }
+        sort();
+        double total = totalWealth;
+        double wealthSumSoFar = 0;
+        double areaBetweenCurves = 0;
+        long turtles = 0;
+        for (int i = 0; i < sortedValues.length; i++) {
+            double x1 = (double) turtles / count;
+            turtles += sortedWeights[i];
+            double x2 = (double) turtles / count;
+            double y1 = wealthSumSoFar / total;
+            wealthSumSoFar += (double) sortedValues[i] * sortedWeights[i];
+            double y2 = wealthSumSoFar / total;
+
+            double trapezoidArea = (x2 - x1) * (y1 + y2) / 2;
+            double rectangleArea = (x2 - x1) * (x1 + x2) / 2;
+            areaBetweenCurves += rectangleArea - trapezoidArea;
+        }
+        return areaBetweenCurves * 2;
+    }
+
+    /**
+     * Maximum error of getGini() while every rank is within getRankError()
+     * (e). The Gini coefficient is the integral of F(1 - F) over the wealth
+     * range divided by the exact mean, where F is the fraction of turtles at
+     * most a given wealth. Between consecutive retained values the true F
+     * lies within e of the sketch's, so the integral is bounded by the
+     * extremes of F(1 - F) over that band, segment by segment. Tight where
+     * turtles are dense and only loose across sparse tails. Never above 1.
+     */
+    public double getGiniErrorBound() {
+        if (isExact()) {
+            return 0.0;
+        }
+        if (totalWealth <= 0) {
+            return 1.0;
+        }
+        sort();
+        double e = getRankError();
+        double estimate = 0, highest = 0, lowest = 0;
+        double from = minWealth;
+        long turtles = 0;
+        // F is constant from one retained value to the next, 0 before the first and 1 after the last
+        for (int i = 0; i <= sortedValues.length; i++) {
+            double to = i < sortedValues.length ? sortedValues[i] : maxWealth;
+            if (to > from) {
+                double f = (double) turtles / count;
+                double low = Math.max(0.0, f - e), high = Math.min(1.0, f + e);
+                double atLow = low * (1 - low), atHigh = high * (1 - high);
+                estimate += (to - from) * f * (1 - f);
+                highest += (to - from) * (low <= 0.5 && high >= 0.5 ? 0.25 : Math.max(atLow, atHigh));
+                lowest += (to - from) * Math.min(atLow, atHigh);
+                from = to;
+            }
+            if (i < sortedValues.length) {
+                turtles += sortedWeights[i];
+            }
+        }
+        return Math.min(1.0, Math.max(highest - estimate, estimate - lowest) / getAvgWealth());
+    }
+
+    /**
+     * Estimated share of the total wealth held by the richest given fraction
+     * of the population
+     */
+    public double getTopShare(double fraction) {
+        if (count == 0 || totalWealth == 0) {
+            return 0.0;
+        }
+        return wealthBetween(1 - fraction, 1) / totalWealth;
+    }
+
+    /**
+     * Estimated share of the total wealth held by the richest tenth
+     */
+    public double getTopDecileShare() {
+        return getTopShare(0.1);
+    }
+
+    /**
+     * Maximum error of getTopShare() while every rank is within
+     * getRankError() (e): the richest fraction's wealth is recomputed with
+     * every retained value moved e up in rank (the top e at the exact
+     * maximum) and e down (the bottom e at the exact minimum). Never above 1.
+     */
+    public double getTopShareErrorBound(double fraction) {
+        if (isExact()) {
+            return 0.0;
+        }
+        if (totalWealth <= 0) {
+            return 1.0;
+        }
+        double e = getRankError();
+        double share = getTopShare(fraction);
+        double high = wealthBetween(Math.min(1.0, 1 - fraction + e), 1)
+                      + Math.min(fraction, e) * count * (double) maxWealth;
+        double low = wealthBetween(Math.max(0.0, 1 - fraction - e), 1 - e)
+                     + Math.max(0.0, e - (1 - fraction)) * count * (double) minWealth;
+        return Math.min(1.0, Math.max(high / totalWealth - share, share - low / totalWealth));
+    }
+
+    public double getTopDecileShareErrorBound() {
+        return getTopShareErrorBound(0.1);
+    }
+
+    /**
+     * Estimated wealth of the turtles ranked between the given fractions of
+     * the population, poorest first, counting part of a retained value where
+     * a boundary falls inside its weight
+     */
+    private double wealthBetween(double fromFraction, double toFraction) {
+        sort();
+        double start = fromFraction * count, end = toFraction * count;
+        double wealth = 0;
+        long turtles = 0;
+        for (int i = 0; i < sortedValues.length && turtles < end; i++) {
+            double overlap = Math.min(turtles + sortedWeights[i], end) - Math.max(turtles, start);
+            if (overlap > 0) {
+                wealth += overlap * sortedValues[i];
+            }
+            turtles += sortedWeights[i];
+        }
+        return wealth;
+    }
+}